@@ -6,6 +6,8 @@ plugins {
     id("com.github.johnrengelman.shadow") version "8.1.1"
     id("io.freefair.lombok") version "8.13.1"
     id("com.github.ben-manes.versions") version "0.52.0"
+    id("me.champeau.jmh") version "0.7.2"
+    id("gg.jte.gradle") version "3.2.1"
 }
 
 group = "hexlet.code"
@@ -19,7 +21,10 @@ dependencies {
     implementation("com.h2database:h2:2.3.232")
     implementation("org.postgresql:postgresql:42.7.4")
     implementation("com.zaxxer:HikariCP:7.0.2")
+    implementation("org.flywaydb:flyway-core:10.20.1")
+    implementation("org.flywaydb:flyway-database-postgresql:10.20.1")
     implementation("com.fasterxml.jackson.core:jackson-databind:2.18.3")
+    implementation("com.fasterxml.jackson.datatype:jackson-datatype-jsr310:2.18.3")
     implementation("org.apache.commons:commons-text:1.13.1")
     implementation("gg.jte:jte:3.2.1")
     implementation("io.javalin:javalin:6.6.0")
@@ -30,6 +35,8 @@ dependencies {
     implementation("com.konghq:unirest-java-core")
     implementation("com.konghq:unirest-modules-jackson")
     implementation("org.jsoup:jsoup:1.17.2")
+    implementation("io.micrometer:micrometer-registry-prometheus:1.13.6")
+    implementation("ch.qos.logback:logback-classic:1.5.12")
 
     testImplementation("com.squareup.okhttp3:mockwebserver:4.12.0")
     testImplementation("com.squareup.okhttp3:okhttp:4.12.0")
@@ -38,6 +45,12 @@ dependencies {
     testImplementation(platform("org.junit:junit-bom:5.12.2"))
     testImplementation("org.junit.jupiter:junit-jupiter")
     testRuntimeOnly("org.junit.platform:junit-platform-launcher")
+
+    jmh("com.squareup.okhttp3:mockwebserver:4.12.0")
+}
+
+configurations.all {
+    exclude(group = "org.slf4j", module = "slf4j-simple")
 }
 
 application {
@@ -59,6 +72,26 @@ tasks.test {
     finalizedBy(tasks.jacocoTestReport) // report is always generated after tests run
 }
 
+jte {
+    sourceDirectory = file("src/main/resources/templates").toPath()
+    contentType = gg.jte.ContentType.Html
+    generate()
+}
+
+tasks.checkstyleMain {
+    exclude("gg/jte/generated/**")
+}
+
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("reports/jmh/results.json")
+    profilers = listOf("gc")
+    providers.gradleProperty("benchPostgresUrl").orNull?.let { postgresUrl ->
+        benchmarkParameters.put("database", objects.listProperty<String>().value(listOf("h2", postgresUrl)))
+    }
+}
+
 tasks.jacocoTestReport {
     reports {
         xml.required = true
@@ -0,0 +1,103 @@
+package hexlet.code;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.repository.BaseRepository;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+/**
+ * Creates a migrated database for a benchmark and seeds it with URLs and checks. Benchmarks run on an
+ * in-memory H2 database unless they are given the JDBC URL of a PostgreSQL database, whose {@code public}
+ * schema is dropped and recreated, so it must be a scratch database.
+ */
+final class BenchmarkDatabase {
+    static final String H2 = "h2";
+
+    private static final int BATCH_SIZE = 1000;
+
+    private BenchmarkDatabase() {
+    }
+
+    static HikariDataSource create(String name) throws SQLException {
+        return create(name, new HikariConfig().getMaximumPoolSize());
+    }
+
+    static HikariDataSource create(String name, int poolSize) throws SQLException {
+        return create(name, poolSize, H2);
+    }
+
+    /**
+     * Creates an empty, migrated database.
+     *
+     * @param name name of the in-memory H2 database
+     * @param poolSize maximum number of pooled connections
+     * @param database {@link #H2}, or the JDBC URL of a scratch PostgreSQL database
+     * @return a pool over the database, also set as the repositories' data source
+     */
+    static HikariDataSource create(String name, int poolSize, String database) throws SQLException {
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(H2.equals(database) ? "jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1" : database);
+        hikariConfig.setMaximumPoolSize(poolSize);
+        var dataSource = new HikariDataSource(hikariConfig);
+        try (var connection = dataSource.getConnection();
+             var statement = connection.createStatement()) {
+            if (H2.equals(database)) {
+                statement.execute("DROP ALL OBJECTS");
+            } else {
+                statement.execute("DROP SCHEMA public CASCADE");
+                statement.execute("CREATE SCHEMA public");
+            }
+        }
+        App.migrate(dataSource);
+        BaseRepository.dataSource = dataSource;
+        return dataSource;
+    }
+
+    static void seed(HikariDataSource dataSource, int urlCount, int checksPerUrl) throws SQLException {
+        var start = LocalDateTime.now().minusDays(1);
+        try (var conn = dataSource.getConnection();
+             var urls = conn.prepareStatement("INSERT INTO urls (id, name, created_at, last_checked_at, "
+                     + "last_status_code) VALUES (?, ?, ?, ?, ?)");
+             var checks = conn.prepareStatement("INSERT INTO url_checks (url_id, status_code, title, h1, "
+                     + "description, created_at) VALUES (?, ?, ?, ?, ?, ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 1; i <= urlCount; i++) {
+                var lastCheckedAt = start.plusMinutes(checksPerUrl);
+                urls.setLong(1, i);
+                urls.setString(2, "https://site-" + i + ".example.com");
+                urls.setTimestamp(3, Timestamp.valueOf(start));
+                urls.setTimestamp(4, checksPerUrl == 0 ? null : Timestamp.valueOf(lastCheckedAt));
+                urls.setObject(5, checksPerUrl == 0 ? null : 200);
+                urls.addBatch();
+                for (int j = 1; j <= checksPerUrl; j++) {
+                    checks.setLong(1, i);
+                    checks.setInt(2, 200);
+                    checks.setString(3, "Site " + i + " check " + j);
+                    checks.setString(4, "Heading " + i);
+                    checks.setString(5, "Description of site " + i);
+                    checks.setTimestamp(6, Timestamp.valueOf(start.plusMinutes(j)));
+                    checks.addBatch();
+                }
+                if (i % BATCH_SIZE == 0) {
+                    urls.executeBatch();
+                    checks.executeBatch();
+                }
+            }
+            urls.executeBatch();
+            checks.executeBatch();
+            conn.commit();
+        }
+        try (var conn = dataSource.getConnection();
+             var statement = conn.createStatement()) {
+            if ("PostgreSQL".equals(conn.getMetaData().getDatabaseProductName())) {
+                statement.execute("SELECT setval('urls_id_seq', " + Math.max(1, urlCount) + ", " + (urlCount > 0)
+                        + ")");
+            } else {
+                statement.execute("ALTER TABLE urls ALTER COLUMN id RESTART WITH " + (urlCount + 1));
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package hexlet.code;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares storing checks one by one with the batched path the bulk checker uses. Runs on H2 by default;
+ * {@code -PbenchPostgresUrl=<jdbc url>} adds a run against a scratch PostgreSQL database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class CheckWriteBenchmark {
+    private static final int URL_COUNT = 100;
+
+    @Param({BenchmarkDatabase.H2})
+    String database;
+
+    private HikariDataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create("check-write", new HikariConfig().getMaximumPoolSize(), database);
+        BenchmarkDatabase.seed(dataSource, URL_COUNT, 0);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void saveOneByOne() throws SQLException {
+        for (var check : newChecks()) {
+            UrlCheckRepository.save(check);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(URL_COUNT)
+    public void saveAll() throws SQLException {
+        UrlCheckRepository.saveAll(newChecks());
+    }
+
+    private static List<UrlCheck> newChecks() {
+        var checks = new ArrayList<UrlCheck>(URL_COUNT);
+        for (long id = 1; id <= URL_COUNT; id++) {
+            checks.add(new UrlCheck(200, "Title", "Heading", "Description", id));
+        }
+        return checks;
+    }
+}
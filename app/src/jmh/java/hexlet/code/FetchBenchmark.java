@@ -0,0 +1,76 @@
+package hexlet.code;
+
+import hexlet.code.check.FetchClient;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fetches a page from a local server through one long-lived client, which keeps its connection alive,
+ * and through a new client per request, which pays for a fresh connection every time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FetchBenchmark {
+    private MockWebServer server;
+    private FetchClient sharedClient;
+    private String url;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse().setBody("<html><head><title>Bench</title></head></html>");
+            }
+        });
+        server.start();
+        url = server.url("/").toString();
+        sharedClient = newClient();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        sharedClient.close();
+        server.shutdown();
+    }
+
+    @Benchmark
+    public String reusedConnection() {
+        return sharedClient.get(url).asString().getBody();
+    }
+
+    @Benchmark
+    public String newConnection() {
+        try (var client = newClient()) {
+            return client.get(url).asString().getBody();
+        }
+    }
+
+    private static FetchClient newClient() {
+        return new FetchClient(Duration.ofSeconds(1), Duration.ofSeconds(5), Duration.ofSeconds(10),
+                HttpClient.Version.HTTP_1_1);
+    }
+}
@@ -0,0 +1,60 @@
+package hexlet.code;
+
+import hexlet.code.check.HeadExtractor;
+import hexlet.code.check.PageSummary;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extracts title, h1 and description from saved pages with the streaming extractor the checker uses
+ * and, for comparison, with a full Jsoup parse. The build runs JMH with the gc profiler, so besides the
+ * time per page the results report the bytes allocated per page as {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PageParsingBenchmark {
+    @Param({"article.html", "news-portal.html"})
+    String page;
+
+    private byte[] body;
+
+    @Setup
+    public void setUp() throws IOException {
+        try (var input = PageParsingBenchmark.class.getResourceAsStream("/corpus/" + page)) {
+            body = input.readAllBytes();
+        }
+    }
+
+    @Benchmark
+    public PageSummary headExtractor() throws IOException {
+        return HeadExtractor.extract(new ByteArrayInputStream(body), StandardCharsets.UTF_8, Long.MAX_VALUE);
+    }
+
+    @Benchmark
+    public String[] jsoup() {
+        var document = Jsoup.parse(new String(body, StandardCharsets.UTF_8));
+        var h1 = document.selectFirst("h1");
+        var description = document.selectFirst("meta[name=description]");
+        return new String[]{document.title(), h1 == null ? "" : h1.text(),
+            description == null ? "" : description.attr("content")};
+    }
+}
@@ -0,0 +1,64 @@
+package hexlet.code;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Uncached URL page reads from as many threads as the check workers and request threads use together, for
+ * HikariCP's default pool size and the app's. Sampled latency includes the wait for a free connection,
+ * so a saturated pool shows up in the upper percentiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Threads(64)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PoolBenchmark {
+    private static final int URL_COUNT = 10_000;
+    private static final int CHECKS_PER_URL = 5;
+
+    @Param({"10", "20"})
+    int poolSize;
+
+    private HikariDataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create("pool", poolSize);
+        BenchmarkDatabase.seed(dataSource, URL_COUNT, CHECKS_PER_URL);
+        UrlRepository.configureCache(0, Duration.ofHours(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        UrlRepository.configureCache(UrlRepository.DEFAULT_CACHE_SIZE, UrlRepository.DEFAULT_CACHE_TTL);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public Optional<Url> findUncached() throws SQLException {
+        return UrlRepository.find(ThreadLocalRandom.current().nextLong(1, URL_COUNT + 1));
+    }
+}
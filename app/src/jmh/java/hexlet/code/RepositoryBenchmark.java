@@ -0,0 +1,80 @@
+package hexlet.code;
+
+import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RepositoryBenchmark {
+    private static final int CHECKS_PER_URL = 5;
+
+    @Param({"1000", "100000"})
+    int urlCount;
+
+    @Param({"0", "10000"})
+    int cacheSize;
+
+    private HikariDataSource dataSource;
+
+    @Setup
+    public void setUp() throws SQLException {
+        dataSource = BenchmarkDatabase.create("repository");
+        BenchmarkDatabase.seed(dataSource, urlCount, CHECKS_PER_URL);
+        UrlRepository.configureCache(cacheSize, Duration.ofHours(1));
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.close();
+    }
+
+    @Benchmark
+    public List<Url> getEntities() throws SQLException {
+        return UrlRepository.getEntities();
+    }
+
+    @Benchmark
+    public List<Url> getFirstPage() throws SQLException {
+        return UrlRepository.getPageAfter(0, 50);
+    }
+
+    @Benchmark
+    public List<Url> getPageWithLatestCheck() throws SQLException {
+        return UrlRepository.getPageWithLatestCheckAfter(urlCount / 2, 50);
+    }
+
+    @Benchmark
+    public Optional<Url> find() throws SQLException {
+        return UrlRepository.find(ThreadLocalRandom.current().nextLong(1, urlCount + 1));
+    }
+
+    @Benchmark
+    public Optional<Url> findByName() throws SQLException {
+        var id = ThreadLocalRandom.current().nextLong(1, urlCount + 1);
+        return UrlRepository.findByName("https://site-" + id + ".example.com");
+    }
+}
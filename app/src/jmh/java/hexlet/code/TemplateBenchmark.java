@@ -0,0 +1,77 @@
+package hexlet.code;
+
+import gg.jte.TemplateEngine;
+import gg.jte.output.StringOutput;
+import hexlet.code.dto.urls.UrlPage;
+import hexlet.code.dto.urls.UrlsPage;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TemplateBenchmark {
+    private static final int ROWS = 50;
+
+    private TemplateEngine templateEngine;
+    private UrlsPage urlsPage;
+    private UrlPage urlPage;
+
+    @Setup
+    public void setUp() {
+        templateEngine = App.createTemplateEngine();
+        var now = LocalDateTime.now();
+
+        var urls = new ArrayList<Url>();
+        for (long id = 1; id <= ROWS; id++) {
+            var url = new Url("https://site-" + id + ".example.com");
+            url.setId(id);
+            url.setCreatedAt(now);
+            url.setLastCheckedAt(now);
+            url.setLastStatusCode(200);
+            urls.add(url);
+        }
+        urlsPage = new UrlsPage(urls, null, (long) ROWS, ROWS, null, null);
+
+        var checks = new ArrayList<UrlCheck>();
+        for (long id = ROWS; id > 0; id--) {
+            var check = new UrlCheck(200, "Title " + id, "Heading " + id, "Description " + id, 1L);
+            check.setId(id);
+            check.setBytesRead(16_384);
+            check.setCreatedAt(now.minusMinutes(id));
+            checks.add(check);
+        }
+        urlPage = new UrlPage(urls.get(0), checks, null, 1L, null, null, null);
+    }
+
+    @Benchmark
+    public String renderUrlsIndex() {
+        var output = new StringOutput();
+        templateEngine.render("urls/index.jte", urlsPage, output);
+        return output.toString();
+    }
+
+    @Benchmark
+    public String renderUrlShow() {
+        var output = new StringOutput();
+        templateEngine.render("urls/show.jte", urlPage, output);
+        return output.toString();
+    }
+}
@@ -0,0 +1,39 @@
+package hexlet.code;
+
+import gg.jte.output.StringOutput;
+import hexlet.code.dto.MainPage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from creating the template engine to the first rendered page, measured once per fresh JVM.
+ * {@code runtime} is how templates were served before they were precompiled by the build.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(10)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+public class TemplateStartupBenchmark {
+    @Param({"precompiled", "runtime"})
+    private String engine;
+
+    @Benchmark
+    public String firstRender() {
+        var templateEngine = App.createTemplateEngine("runtime".equals(engine));
+        var output = new StringOutput();
+        templateEngine.render("index.jte", new MainPage(null, null), output);
+        return output.toString();
+    }
+}
@@ -0,0 +1,34 @@
+package hexlet.code;
+
+import hexlet.code.util.UrlNormalizer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@Fork(1)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class UrlNormalizerBenchmark {
+    @Param({"https://example.com", "HTTPS://Example.COM:443/some/path?query=1#fragment",
+        "http://sub.domain.example.org:8080/a/b/c/d/e/f/g/h?utm_source=newsletter&utm_medium=email"})
+    String input;
+
+    @Benchmark
+    public String normalize() throws URISyntaxException {
+        return UrlNormalizer.normalize(new URI(input));
+    }
+}
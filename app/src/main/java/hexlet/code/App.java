@@ -3,31 +3,82 @@ package hexlet.code;
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
 import gg.jte.ContentType;
+import gg.jte.CodeResolver;
 import gg.jte.TemplateEngine;
+import gg.jte.resolve.DirectoryCodeResolver;
 import gg.jte.resolve.ResourceCodeResolver;
+import hexlet.code.check.BulkCheckEngine;
+import hexlet.code.check.CheckJobQueue;
+import hexlet.code.check.CheckMetrics;
+import hexlet.code.check.CheckScheduler;
+import hexlet.code.check.FetchClient;
+import hexlet.code.check.UrlChecker;
+import hexlet.code.controller.ApiController;
+import hexlet.code.controller.MetricsController;
 import hexlet.code.controller.RootController;
 import hexlet.code.controller.UrlsController;
 import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.RepositoryCache;
+import hexlet.code.repository.UrlCheckRetention;
+import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
+import hexlet.code.util.RequestIds;
+import hexlet.code.util.RequestMetrics;
 import io.javalin.Javalin;
+import io.javalin.json.JavalinJackson;
 import io.javalin.rendering.template.JavalinJte;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.flywaydb.core.Flyway;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
+import java.lang.management.ManagementFactory;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.sql.SQLException;
-import java.util.stream.Collectors;
+import java.time.Duration;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import javax.sql.DataSource;
 
 @Slf4j
 public class App {
+    static final int DEFAULT_POOL_SIZE = 20;
+    static final int NODE_ID_LENGTH = 64;
 
     static TemplateEngine createTemplateEngine() {
-        ClassLoader classLoader = App.class.getClassLoader();
-        ResourceCodeResolver codeResolver = new ResourceCodeResolver("templates", classLoader);
-        TemplateEngine templateEngine = TemplateEngine.create(codeResolver, ContentType.Html);
-        return templateEngine;
+        return createTemplateEngine(isDevelopment());
+    }
+
+    /**
+     * Uses the template classes precompiled by the build, so no template is compiled while serving requests.
+     * In development templates are compiled on first use instead, and reloaded from the source directory
+     * when it is available.
+     *
+     * @param development whether to compile templates at runtime
+     * @return the template engine
+     */
+    static TemplateEngine createTemplateEngine(boolean development) {
+        if (!development) {
+            return TemplateEngine.createPrecompiled(ContentType.Html);
+        }
+        var templatesDirectory = Path.of(System.getenv().getOrDefault("TEMPLATES_DIR", "src/main/resources/templates"));
+        CodeResolver codeResolver = Files.isDirectory(templatesDirectory)
+                ? new DirectoryCodeResolver(templatesDirectory)
+                : new ResourceCodeResolver("templates", App.class.getClassLoader());
+        return TemplateEngine.create(codeResolver, ContentType.Html);
+    }
+
+    private static boolean isDevelopment() {
+        return "development".equals(System.getenv().getOrDefault("APP_ENV", "production"));
     }
 
     private static int getPort() {
@@ -35,15 +86,163 @@ public class App {
         return Integer.valueOf(port);
     }
 
+    private static int getEnvInt(String name, int defaultValue) {
+        return Integer.parseInt(System.getenv().getOrDefault(name, String.valueOf(defaultValue)));
+    }
+
+    /**
+     * Names this process in database leases. Defaults to the JVM name with a random suffix, so app
+     * instances sharing a JVM or a host still tell their leases apart.
+     *
+     * @return the NODE_ID variable, or a generated id of at most {@link #NODE_ID_LENGTH} characters
+     */
+    static String createNodeId() {
+        var nodeId = System.getenv("NODE_ID");
+        if (nodeId == null || nodeId.isBlank()) {
+            var jvmName = ManagementFactory.getRuntimeMXBean().getName();
+            nodeId = jvmName.substring(0, Math.min(jvmName.length(), NODE_ID_LENGTH - 9)) + "-"
+                    + UUID.randomUUID().toString().substring(0, 8);
+        }
+        return nodeId.substring(0, Math.min(nodeId.length(), NODE_ID_LENGTH));
+    }
+
+    private static FetchClient createFetchClient() {
+        FetchClient.configurePool(getEnvInt("CHECK_POOL_SIZE", 0),
+                Duration.ofSeconds(getEnvInt("CHECK_KEEPALIVE_SECONDS", 30)));
+        var version = System.getenv().getOrDefault("CHECK_HTTP_VERSION", HttpClient.Version.HTTP_2.name());
+        return new FetchClient(
+                Duration.ofMillis(getEnvInt("CHECK_CONNECT_TIMEOUT_MS", 5_000)),
+                Duration.ofMillis(getEnvInt("CHECK_READ_TIMEOUT_MS", 10_000)),
+                Duration.ofMillis(getEnvInt("CHECK_TOTAL_TIMEOUT_MS", 30_000)),
+                HttpClient.Version.valueOf(version));
+    }
+
+    private static void logCacheStats() {
+        var findCache = UrlRepository.getFindCache();
+        var findByNameCache = UrlRepository.getFindByNameCache();
+        log.info("Url cache: find {} hits / {} misses, findByName {} hits / {} misses",
+                findCache.getHits(), findCache.getMisses(), findByNameCache.getHits(), findByNameCache.getMisses());
+    }
+
+    private static void bindCacheMetrics(MeterRegistry registry, String name, Supplier<RepositoryCache<?, ?>> cache) {
+        FunctionCounter.builder("url.cache.hits", UrlRepository.class, owner -> cache.get().getHits())
+                .tag("cache", name)
+                .register(registry);
+        FunctionCounter.builder("url.cache.misses", UrlRepository.class, owner -> cache.get().getMisses())
+                .tag("cache", name)
+                .register(registry);
+        Gauge.builder("url.cache.size", UrlRepository.class, owner -> cache.get().size())
+                .tag("cache", name)
+                .register(registry);
+    }
+
     private static String getDatabaseUrl() {
         return System.getenv().getOrDefault("JDBC_DATABASE_URL", "jdbc:h2:mem:project");
     }
 
-    static String readResourceFile(String fileName) throws IOException {
-        var inputStream = App.class.getClassLoader().getResourceAsStream(fileName);
-        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
-            return reader.lines().collect(Collectors.joining("\n"));
+    /**
+     * Builds the pool settings in three layers: tuned defaults, then the properties file named by
+     * {@code DB_POOL_PROPERTIES} (HikariCP property names, {@code dataSource.*} for driver settings), then
+     * {@code DB_*} environment variables. On PostgreSQL statements are prepared on the server after
+     * {@code prepareThreshold} executions and kept in a per-connection cache.
+     *
+     * @return pool settings for the configured database
+     */
+    static HikariConfig createHikariConfig() throws IOException {
+        var properties = new Properties();
+        properties.setProperty("jdbcUrl", getDatabaseUrl());
+        properties.setProperty("poolName", "app-pool");
+        properties.setProperty("maximumPoolSize", String.valueOf(DEFAULT_POOL_SIZE));
+        properties.setProperty("connectionTimeout", "5000");
+        var propertiesFile = System.getenv("DB_POOL_PROPERTIES");
+        if (propertiesFile != null) {
+            try (var reader = Files.newBufferedReader(Path.of(propertiesFile))) {
+                properties.load(reader);
+            }
+        }
+        if (System.getenv("JDBC_DATABASE_URL") != null) {
+            properties.setProperty("jdbcUrl", getDatabaseUrl());
+        }
+        var hikariConfig = new HikariConfig(properties);
+
+        setFromEnv("DB_POOL_MAX_SIZE", value -> hikariConfig.setMaximumPoolSize(Integer.parseInt(value)));
+        setFromEnv("DB_POOL_MIN_IDLE", value -> hikariConfig.setMinimumIdle(Integer.parseInt(value)));
+        setFromEnv("DB_CONNECTION_TIMEOUT_MS", value -> hikariConfig.setConnectionTimeout(Long.parseLong(value)));
+        setFromEnv("DB_IDLE_TIMEOUT_MS", value -> hikariConfig.setIdleTimeout(Long.parseLong(value)));
+        setFromEnv("DB_MAX_LIFETIME_MS", value -> hikariConfig.setMaxLifetime(Long.parseLong(value)));
+        setFromEnv("DB_LEAK_DETECTION_MS", value -> hikariConfig.setLeakDetectionThreshold(Long.parseLong(value)));
+
+        if (hikariConfig.getJdbcUrl().startsWith("jdbc:postgresql:")) {
+            var dataSourceProperties = hikariConfig.getDataSourceProperties();
+            dataSourceProperties.putIfAbsent("prepareThreshold", "1");
+            dataSourceProperties.putIfAbsent("preparedStatementCacheQueries", "256");
+            dataSourceProperties.putIfAbsent("preparedStatementCacheSizeMiB", "5");
+            dataSourceProperties.putIfAbsent("reWriteBatchedInserts", "true");
+            setFromEnv("DB_PREPARE_THRESHOLD", value -> dataSourceProperties.put("prepareThreshold", value));
+            setFromEnv("DB_STATEMENT_CACHE_QUERIES",
+                    value -> dataSourceProperties.put("preparedStatementCacheQueries", value));
+            setFromEnv("DB_STATEMENT_CACHE_MIB",
+                    value -> dataSourceProperties.put("preparedStatementCacheSizeMiB", value));
         }
+        return hikariConfig;
+    }
+
+    /**
+     * Opens a read-only pool on {@code JDBC_REPLICA_URL} with the primary's pool settings.
+     *
+     * @param primaryConfig settings of the primary pool
+     * @param meterRegistry registry for the pool metrics
+     * @return the replica pool, or null when no replica is configured
+     */
+    private static HikariDataSource createReplicaDataSource(HikariConfig primaryConfig, MeterRegistry meterRegistry) {
+        var replicaUrl = System.getenv("JDBC_REPLICA_URL");
+        if (replicaUrl == null || replicaUrl.isBlank()) {
+            return null;
+        }
+        var replicaConfig = new HikariConfig();
+        primaryConfig.copyStateTo(replicaConfig);
+        replicaConfig.setJdbcUrl(replicaUrl);
+        replicaConfig.setPoolName(primaryConfig.getPoolName() + "-replica");
+        replicaConfig.setReadOnly(true);
+        replicaConfig.setMetricRegistry(meterRegistry);
+        var replicaDataSource = new HikariDataSource(replicaConfig);
+        logPoolSettings(replicaConfig);
+        return replicaDataSource;
+    }
+
+    private static void setFromEnv(String name, Consumer<String> setter) {
+        var value = System.getenv(name);
+        if (value != null && !value.isBlank()) {
+            setter.accept(value.trim());
+        }
+    }
+
+    private static void logPoolSettings(HikariConfig hikariConfig) {
+        var driverProperties = new TreeMap<>(hikariConfig.getDataSourceProperties());
+        driverProperties.keySet().removeIf(key -> key.toString().toLowerCase().contains("password"));
+        log.info("Pool {}: maximumPoolSize={}, minimumIdle={}, connectionTimeout={}ms, idleTimeout={}ms, "
+                        + "maxLifetime={}ms, leakDetectionThreshold={}ms, dataSourceProperties={}",
+                hikariConfig.getPoolName(), hikariConfig.getMaximumPoolSize(), hikariConfig.getMinimumIdle(),
+                hikariConfig.getConnectionTimeout(), hikariConfig.getIdleTimeout(), hikariConfig.getMaxLifetime(),
+                hikariConfig.getLeakDetectionThreshold(), driverProperties);
+    }
+
+    /**
+     * Applies pending migrations from {@code db/migration}, plus the ones only one database needs from
+     * {@code db/vendor/<name>}. A database created by the old boot-time {@code schema.sql} has no history
+     * table yet and is baselined at version 1, which is that schema as first released; the later
+     * migrations add whatever it is missing and skip what a newer {@code schema.sql} already created.
+     *
+     * @param dataSource database to migrate
+     */
+    static void migrate(DataSource dataSource) {
+        Flyway.configure()
+                .dataSource(dataSource)
+                .locations("classpath:db/migration", "classpath:db/vendor/{vendor}")
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
     }
 
     public static void main(String[] args) throws IOException, SQLException {
@@ -54,37 +253,104 @@ public class App {
 
     public static Javalin getApp() throws IOException, SQLException {
 
-        var hikariConfig = new HikariConfig();
-        hikariConfig.setJdbcUrl(getDatabaseUrl());
+        var meterRegistry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        MetricsController.registry = meterRegistry;
+
+        var hikariConfig = createHikariConfig();
+        hikariConfig.setMetricRegistry(meterRegistry);
 
         var dataSource = new HikariDataSource(hikariConfig);
+        logPoolSettings(hikariConfig);
 
-        var sql = readResourceFile("schema.sql");
+        migrate(dataSource);
         BaseRepository.dataSource = dataSource;
+        var replicaDataSource = createReplicaDataSource(hikariConfig, meterRegistry);
+        BaseRepository.configureReplica(replicaDataSource, Duration.ofMillis(getEnvInt("DB_READ_YOUR_WRITES_MS",
+                (int) BaseRepository.DEFAULT_READ_YOUR_WRITES_WINDOW.toMillis())));
+
+        UrlRepository.configureCache(getEnvInt("URL_CACHE_SIZE", UrlRepository.DEFAULT_CACHE_SIZE),
+                Duration.ofSeconds(getEnvInt("URL_CACHE_TTL_SECONDS",
+                        (int) UrlRepository.DEFAULT_CACHE_TTL.toSeconds())));
+        bindCacheMetrics(meterRegistry, "find", UrlRepository::getFindCache);
+        bindCacheMetrics(meterRegistry, "findByName", UrlRepository::getFindByNameCache);
+
+        var fetchClient = createFetchClient();
+        UrlChecker.maxBodyBytes = getEnvInt("CHECK_MAX_BODY_BYTES", (int) UrlChecker.DEFAULT_MAX_BODY_BYTES);
+        UrlChecker.fetchClient = fetchClient;
+        UrlChecker.metrics = new CheckMetrics(meterRegistry);
+        var checkJobQueue = new CheckJobQueue(getEnvInt("CHECK_WORKERS", 4),
+                getEnvInt("CHECK_QUEUE_CAPACITY", 1000), getEnvInt("CHECK_PER_HOST_LIMIT", 2));
+        UrlsController.checkJobQueue = checkJobQueue;
+
+        var nodeId = createNodeId();
+        log.info("Running as node {}", nodeId);
+        var checkScheduler = new CheckScheduler(checkJobQueue, nodeId, getEnvInt("CHECK_SCHEDULER_BATCH_SIZE", 100),
+                Duration.ofSeconds(getEnvInt("CHECK_LEASE_SECONDS", 300)));
+        var schedulerPollSeconds = getEnvInt("CHECK_SCHEDULER_POLL_SECONDS", 5);
+        if (schedulerPollSeconds > 0) {
+            checkScheduler.start(Duration.ofSeconds(schedulerPollSeconds));
+        }
 
-        try (var connection = dataSource.getConnection();
-             var statement = connection.createStatement()) {
-            statement.execute(sql);
+        var bulkCheckEngine = new BulkCheckEngine(getEnvInt("BULK_CHECK_CONCURRENCY", 256),
+                getEnvInt("BULK_CHECK_PER_HOST_LIMIT", 2), getEnvInt("BULK_CHECK_RATE_PER_SECOND", 200),
+                getEnvInt("BULK_CHECK_BATCH_SIZE", 500));
+        var bulkCheckInterval = getEnvInt("BULK_CHECK_INTERVAL_MINUTES", 0);
+        if (bulkCheckInterval > 0) {
+            bulkCheckEngine.schedule(Duration.ofMinutes(bulkCheckInterval), nodeId);
         }
+        UrlsController.bulkCheckEngine = bulkCheckEngine;
+
+        var retention = new UrlCheckRetention(getEnvInt("CHECK_RETENTION_DAYS", 90));
+        retention.schedule(Duration.ofHours(getEnvInt("CHECK_RETENTION_INTERVAL_HOURS", 24)), nodeId);
 
         var app = Javalin.create(config -> {
-            config.bundledPlugins.enableDevLogging();
+            if (isDevelopment()) {
+                config.bundledPlugins.enableDevLogging();
+            }
             config.fileRenderer(new JavalinJte(createTemplateEngine()));
+            config.jsonMapper(new JavalinJackson(ApiController.MAPPER, false));
+            config.events.serverStopping(checkScheduler::close);
+            config.events.serverStopping(checkJobQueue::close);
+            config.events.serverStopping(bulkCheckEngine::close);
+            config.events.serverStopping(fetchClient::close);
+            config.events.serverStopping(retention::close);
+            config.events.serverStopping(App::logCacheStats);
+            config.events.serverStopped(dataSource::close);
+            if (replicaDataSource != null) {
+                config.events.serverStopped(replicaDataSource::close);
+            }
         });
 
+        var requestMetrics = new RequestMetrics(meterRegistry);
+        app.before(requestMetrics::start);
+        app.before(RequestIds::assign);
+        app.after(requestMetrics::record);
+        app.after(RequestIds::clear);
+
         app.before(ctx -> {
             ctx.contentType("text/html; charset=utf-8");
         });
 
-
+        app.get(NamedRoutes.metricsPath(), MetricsController::index);
 
         app.get(NamedRoutes.rootPath(), RootController::index);
 
         app.get(NamedRoutes.urlsPath(), UrlsController::index);
         app.post(NamedRoutes.urlsPath(), UrlsController::create);
+        app.post(NamedRoutes.urlsChecksPath(), UrlsController::checkAll);
         app.get(NamedRoutes.urlPath("{id}"), UrlsController::show);
 
         app.post(NamedRoutes.urlChecksPath("{id}"), UrlsController::check);
+        app.post(NamedRoutes.urlSchedulePath("{id}"), UrlsController::schedule);
+        app.post(NamedRoutes.urlScheduleDeletePath("{id}"), UrlsController::unschedule);
+
+        app.get(NamedRoutes.apiUrlsPath(), ApiController::urls);
+        app.post(NamedRoutes.apiUrlsImportPath(), ApiController::importUrls);
+        app.get(NamedRoutes.apiUrlPath("{id}"), ApiController::show);
+        app.post(NamedRoutes.apiUrlChecksPath("{id}"), ApiController::check);
+        app.post(NamedRoutes.apiUrlSchedulePath("{id}"), ApiController::schedule);
+        app.delete(NamedRoutes.apiUrlSchedulePath("{id}"), ApiController::unschedule);
+        app.get(NamedRoutes.apiChecksExportPath(), ApiController::exportChecks);
 
         return app;
     }
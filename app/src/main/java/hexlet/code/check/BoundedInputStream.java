@@ -0,0 +1,81 @@
+package hexlet.code.check;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Stops reading after a fixed number of bytes and remembers whether the source had more to give.
+ */
+public final class BoundedInputStream extends FilterInputStream {
+    private final long maxBytes;
+    private long bytesRead;
+    private boolean truncated;
+
+    public BoundedInputStream(InputStream in, long maxBytes) {
+        super(in);
+        this.maxBytes = maxBytes;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public boolean isTruncated() {
+        return truncated;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (isExhausted()) {
+            return -1;
+        }
+        var b = super.read();
+        if (b != -1) {
+            bytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (isExhausted()) {
+            return -1;
+        }
+        var count = super.read(b, off, (int) Math.min(len, maxBytes - bytesRead));
+        if (count > 0) {
+            bytesRead += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        var skipped = super.skip(Math.min(n, maxBytes - bytesRead));
+        bytesRead += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(super.available(), maxBytes - bytesRead);
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    private boolean isExhausted() throws IOException {
+        if (bytesRead < maxBytes) {
+            return false;
+        }
+        if (!truncated && super.read() != -1) {
+            truncated = true;
+        }
+        return true;
+    }
+}
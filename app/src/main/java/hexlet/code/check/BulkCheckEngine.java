@@ -0,0 +1,199 @@
+package hexlet.code.check;
+
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.JobLeaseRepository;
+import hexlet.code.repository.UrlCheckWriter;
+import hexlet.code.repository.UrlRepository;
+import kong.unirest.core.UnirestException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-checks every stored URL on virtual threads, bounded by a global concurrency cap,
+ * a per-host limit and an optional request rate.
+ */
+@Slf4j
+public final class BulkCheckEngine implements AutoCloseable {
+    private static final String LEASE_NAME = "bulk-check";
+    private static final int PAGE_SIZE = 1000;
+    private static final Duration FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    private final int concurrency;
+    private final int perHostLimit;
+    private final TokenBucket rateLimiter;
+    private final int batchSize;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        var thread = new Thread(runnable, "bulk-check-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private volatile BulkCheckReport lastReport;
+
+    public BulkCheckEngine(int concurrency, int perHostLimit, double ratePerSecond, int batchSize) {
+        this.concurrency = concurrency;
+        this.perHostLimit = perHostLimit;
+        this.rateLimiter = ratePerSecond > 0 ? new TokenBucket(ratePerSecond, Math.max(1, ratePerSecond)) : null;
+        this.batchSize = batchSize;
+    }
+
+    public Optional<BulkCheckReport> getLastReport() {
+        return Optional.ofNullable(lastReport);
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    /**
+     * Starts a run in the background unless one is already in progress.
+     *
+     * @return false if a run was already in progress
+     */
+    public boolean startAsync() {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            scheduler.execute(this::runStartedQuietly);
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * Runs a bulk check every interval. Nodes sharing a database take turns through a job lease that is
+     * renewed for as long as a run lasts, so each run happens on one node only.
+     *
+     * @param interval time between runs
+     * @param nodeId id of this node
+     */
+    public void schedule(Duration interval, String nodeId) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                JobLeaseRepository.runLeased(LEASE_NAME, nodeId, interval, scheduler, this::runQuietly);
+            } catch (SQLException e) {
+                log.error("Could not take the bulk check lease", e);
+            }
+        }, interval.toMillis(), interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Checks every URL once and blocks until all results are stored.
+     *
+     * @return throughput figures of the run, or empty if another run was in progress
+     */
+    public Optional<BulkCheckReport> runAll() throws SQLException, InterruptedException {
+        if (!running.compareAndSet(false, true)) {
+            return Optional.empty();
+        }
+        return Optional.of(runStarted());
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private BulkCheckReport runStarted() throws SQLException, InterruptedException {
+        try {
+            var report = crawl();
+            lastReport = report;
+            log.info("Bulk check finished: {} checked, {} failed in {} ms ({} urls/s)",
+                    report.getChecked(), report.getFailed(), report.getElapsed().toMillis(),
+                    String.format("%.1f", report.getUrlsPerSecond()));
+            return report;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void runQuietly() {
+        if (running.compareAndSet(false, true)) {
+            runStartedQuietly();
+        }
+    }
+
+    private void runStartedQuietly() {
+        try {
+            runStarted();
+        } catch (SQLException e) {
+            log.error("Bulk check failed", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private BulkCheckReport crawl() throws SQLException, InterruptedException {
+        var startedAt = System.nanoTime();
+        var checked = new AtomicLong();
+        var failed = new AtomicLong();
+        var globalPermits = new Semaphore(concurrency);
+        var hostPermits = new ConcurrentHashMap<String, Semaphore>();
+
+        try (var results = new UrlCheckWriter(batchSize, FLUSH_INTERVAL);
+             var executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            long afterId = 0;
+            List<Url> page;
+            do {
+                page = UrlRepository.getPageWithLatestCheckAfter(afterId, PAGE_SIZE);
+                for (var url : page) {
+                    globalPermits.acquire();
+                    executor.execute(() -> {
+                        try {
+                            results.write(checkPolitely(url, hostPermits));
+                            checked.incrementAndGet();
+                        } catch (UnirestException e) {
+                            failed.incrementAndGet();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        } catch (SQLException e) {
+                            log.error("Could not store bulk check results", e);
+                        } catch (RuntimeException e) {
+                            log.error("Bulk check of {} failed unexpectedly", url.getName(), e);
+                            failed.incrementAndGet();
+                        } finally {
+                            globalPermits.release();
+                        }
+                    });
+                }
+                if (!page.isEmpty()) {
+                    afterId = page.get(page.size() - 1).getId();
+                }
+            } while (page.size() == PAGE_SIZE);
+        }
+
+        return new BulkCheckReport(checked.get(), failed.get(), Duration.ofNanos(System.nanoTime() - startedAt));
+    }
+
+    private UrlCheck checkPolitely(Url url, Map<String, Semaphore> hostPermits) throws InterruptedException {
+        var permits = hostPermits.computeIfAbsent(URI.create(url.getName()).getHost(),
+                host -> new Semaphore(perHostLimit));
+        permits.acquire();
+        try {
+            if (rateLimiter != null) {
+                rateLimiter.acquire();
+            }
+            return UrlChecker.check(url);
+        } finally {
+            permits.release();
+        }
+    }
+}
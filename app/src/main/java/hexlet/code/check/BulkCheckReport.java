@@ -0,0 +1,19 @@
+package hexlet.code.check;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Duration;
+
+@AllArgsConstructor
+@Getter
+public class BulkCheckReport {
+    private final long checked;
+    private final long failed;
+    private final Duration elapsed;
+
+    public double getUrlsPerSecond() {
+        var seconds = elapsed.toMillis() / 1000.0;
+        return seconds == 0 ? checked + failed : (checked + failed) / seconds;
+    }
+}
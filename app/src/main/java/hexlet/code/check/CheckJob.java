@@ -0,0 +1,52 @@
+package hexlet.code.check;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.Getter;
+
+@Getter
+public final class CheckJob {
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED,
+        SKIPPED
+    }
+
+    private final long id;
+    private final long urlId;
+    private volatile Status status;
+    private volatile String error;
+    @JsonIgnore
+    private volatile long finishedAtNanos;
+
+    CheckJob(long id, long urlId) {
+        this.id = id;
+        this.urlId = urlId;
+        this.status = Status.PENDING;
+    }
+
+    public boolean isActive() {
+        return status == Status.PENDING || status == Status.RUNNING;
+    }
+
+    void markRunning() {
+        status = Status.RUNNING;
+    }
+
+    void markDone() {
+        finishedAtNanos = System.nanoTime();
+        status = Status.DONE;
+    }
+
+    void markSkipped() {
+        finishedAtNanos = System.nanoTime();
+        status = Status.SKIPPED;
+    }
+
+    void markFailed(String message) {
+        error = message;
+        finishedAtNanos = System.nanoTime();
+        status = Status.FAILED;
+    }
+}
@@ -0,0 +1,241 @@
+package hexlet.code.check;
+
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlCheckRepository;
+import kong.unirest.core.UnirestException;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.MDC;
+
+import java.net.URI;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Runs URL checks off the request thread with a fixed number of workers, a bounded backlog
+ * and a cap on simultaneous requests to the same host. A job whose host is at its cap is parked
+ * behind the running ones instead of holding a worker, and the worker that finishes a host's job
+ * runs the next parked one. Finished jobs stay visible through {@link #findLatest} for a while and are
+ * then forgotten.
+ */
+@Slf4j
+public final class CheckJobQueue implements AutoCloseable {
+    public static final Duration DEFAULT_FINISHED_JOB_TTL = Duration.ofMinutes(10);
+
+    private final ThreadPoolExecutor executor;
+    private final int queueCapacity;
+    private final int perHostLimit;
+    private final long finishedJobTtlNanos;
+    private final AtomicLong nextEvictionNanos = new AtomicLong(System.nanoTime());
+    private final Map<String, HostSlot> hosts = new HashMap<>();
+    private final AtomicInteger parked = new AtomicInteger();
+    private final Map<Long, CheckJob> latestJobs = new ConcurrentHashMap<>();
+    private final AtomicLong jobIds = new AtomicLong();
+    private final AtomicInteger unfinished = new AtomicInteger();
+
+    public CheckJobQueue(int workers, int queueCapacity, int perHostLimit) {
+        this(workers, queueCapacity, perHostLimit, DEFAULT_FINISHED_JOB_TTL);
+    }
+
+    public CheckJobQueue(int workers, int queueCapacity, int perHostLimit, Duration finishedJobTtl) {
+        var threadIds = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(workers, workers, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    var thread = new Thread(runnable, "check-worker-" + threadIds.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.queueCapacity = queueCapacity;
+        this.perHostLimit = perHostLimit;
+        this.finishedJobTtlNanos = finishedJobTtl.toNanos();
+    }
+
+    /**
+     * Queues a check of the given URL. The job logs with the logging context of the submitting thread,
+     * so its messages carry the id of the request that queued it.
+     *
+     * @param url the URL to check
+     * @return the queued job, or empty when the backlog is full
+     */
+    public Optional<CheckJob> submit(Url url) {
+        return submit(url, job -> { });
+    }
+
+    /**
+     * Queues a check of the given URL and calls back once the job has finished, whether it succeeded or not.
+     *
+     * @param url the URL to check
+     * @param onFinished called on the worker thread after the job ends; not called when the backlog is full
+     * @return the queued job, or empty when the backlog is full
+     */
+    public Optional<CheckJob> submit(Url url, Consumer<CheckJob> onFinished) {
+        return submit(url, job -> true, onFinished);
+    }
+
+    /**
+     * Queues a check of the given URL that first asks whether it should still run once a worker picks it up.
+     * A job turned down there ends as {@link CheckJob.Status#SKIPPED} without fetching anything.
+     *
+     * @param url the URL to check
+     * @param beforeRun called on the worker thread right before the check; false skips the check
+     * @param onFinished called on the worker thread after the job ends; not called when the backlog is full
+     * @return the queued job, or empty when the backlog is full
+     */
+    public Optional<CheckJob> submit(Url url, Predicate<CheckJob> beforeRun, Consumer<CheckJob> onFinished) {
+        if (getRemainingCapacity() == 0) {
+            return Optional.empty();
+        }
+        evictFinishedJobs();
+        var job = new CheckJob(jobIds.incrementAndGet(), url.getId());
+        var task = new Task(job, url, beforeRun, onFinished, MDC.getCopyOfContextMap());
+        unfinished.incrementAndGet();
+        latestJobs.put(url.getId(), job);
+        try {
+            executor.execute(() -> start(task));
+        } catch (RejectedExecutionException e) {
+            latestJobs.remove(url.getId(), job);
+            unfinished.decrementAndGet();
+            return Optional.empty();
+        }
+        return Optional.of(job);
+    }
+
+    public Optional<CheckJob> findLatest(long urlId) {
+        var now = System.nanoTime();
+        return Optional.ofNullable(latestJobs.get(urlId)).filter(job -> !isForgotten(job, now));
+    }
+
+    public int getQueueDepth() {
+        return executor.getQueue().size() + parked.get();
+    }
+
+    public int getRemainingCapacity() {
+        return Math.max(0, queueCapacity - getQueueDepth());
+    }
+
+    /**
+     * Waits until every submitted job has finished.
+     *
+     * @param timeout how long to wait at most
+     * @return false if the timeout elapsed first
+     */
+    public boolean awaitIdle(Duration timeout) throws InterruptedException {
+        var deadline = System.nanoTime() + timeout.toNanos();
+        while (unfinished.get() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private void evictFinishedJobs() {
+        var now = System.nanoTime();
+        var next = nextEvictionNanos.get();
+        if (now - next < 0 || !nextEvictionNanos.compareAndSet(next, now + finishedJobTtlNanos / 2)) {
+            return;
+        }
+        latestJobs.values().removeIf(job -> isForgotten(job, now));
+    }
+
+    private boolean isForgotten(CheckJob job, long now) {
+        return !job.isActive() && now - job.getFinishedAtNanos() > finishedJobTtlNanos;
+    }
+
+    private void start(Task task) {
+        var host = URI.create(task.url().getName()).getHost();
+        synchronized (hosts) {
+            var slot = hosts.computeIfAbsent(host, key -> new HostSlot());
+            if (slot.running >= perHostLimit) {
+                slot.waiting.add(task);
+                parked.incrementAndGet();
+                return;
+            }
+            slot.running++;
+        }
+
+        var next = task;
+        while (next != null) {
+            run(next);
+            next = nextForHost(host);
+        }
+    }
+
+    private Task nextForHost(String host) {
+        synchronized (hosts) {
+            var slot = hosts.get(host);
+            var next = slot.waiting.poll();
+            if (next != null) {
+                parked.decrementAndGet();
+                return next;
+            }
+            slot.running--;
+            if (slot.running == 0) {
+                hosts.remove(host);
+            }
+            return null;
+        }
+    }
+
+    private void run(Task task) {
+        var job = task.job();
+        var url = task.url();
+        if (task.logContext() != null) {
+            MDC.setContextMap(task.logContext());
+        }
+        try {
+            if (!task.beforeRun().test(job)) {
+                job.markSkipped();
+                latestJobs.remove(url.getId(), job);
+                return;
+            }
+            job.markRunning();
+            UrlCheckRepository.save(UrlChecker.check(url));
+            job.markDone();
+            latestJobs.remove(url.getId(), job);
+        } catch (UnirestException | SQLException e) {
+            log.warn("Check job {} for {} failed", job.getId(), url.getName(), e);
+            job.markFailed(e.getMessage());
+        } catch (RuntimeException e) {
+            log.error("Check job {} for {} failed unexpectedly", job.getId(), url.getName(), e);
+            job.markFailed("Внутренняя ошибка проверки");
+        } finally {
+            try {
+                task.onFinished().accept(job);
+            } catch (RuntimeException e) {
+                log.error("Completion callback of check job {} failed", job.getId(), e);
+            } finally {
+                unfinished.decrementAndGet();
+                MDC.clear();
+            }
+        }
+    }
+
+    private record Task(CheckJob job, Url url, Predicate<CheckJob> beforeRun, Consumer<CheckJob> onFinished,
+                        Map<String, String> logContext) {
+    }
+
+    private static final class HostSlot {
+        private int running;
+        private final Deque<Task> waiting = new ArrayDeque<>();
+    }
+}
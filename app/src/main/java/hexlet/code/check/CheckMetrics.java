@@ -0,0 +1,112 @@
+package hexlet.code.check;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import javax.net.ssl.SSLException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.http.HttpTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters of {@link UrlChecker}: checks counted by status code or error type, time to the response
+ * headers, time spent reading and parsing the body, and bytes read. Outcome counters are registered
+ * up front for the common status codes and error types; anything else is counted under its status
+ * class, such as {@code 4xx}, or under the {@code other} error.
+ */
+public final class CheckMetrics {
+    private static final String NONE = "none";
+    private static final String OTHER = "other";
+    private static final List<Integer> STATUS_CODES = List.of(200, 201, 204, 301, 302, 303, 304, 307, 308,
+            400, 401, 403, 404, 405, 408, 410, 429, 500, 502, 503, 504);
+    private static final Map<Class<? extends Throwable>, String> ERROR_TYPES = errorTypes();
+
+    private final Map<Integer, Counter> statusCounters = new LinkedHashMap<>();
+    private final Counter[] statusClassCounters = new Counter[6];
+    private final Counter otherStatusCounter;
+    private final Map<Class<? extends Throwable>, Counter> errorCounters = new LinkedHashMap<>();
+    private final Counter otherErrorCounter;
+    private final Timer fetchTimer;
+    private final Timer parseTimer;
+    private final DistributionSummary bytesRead;
+
+    public CheckMetrics(MeterRegistry registry) {
+        for (var statusCode : STATUS_CODES) {
+            statusCounters.put(statusCode, outcome(registry, String.valueOf(statusCode), NONE));
+        }
+        for (int statusClass = 1; statusClass < statusClassCounters.length; statusClass++) {
+            statusClassCounters[statusClass] = outcome(registry, statusClass + "xx", NONE);
+        }
+        this.otherStatusCounter = outcome(registry, OTHER, NONE);
+        ERROR_TYPES.forEach((type, name) -> errorCounters.put(type, outcome(registry, NONE, name)));
+        this.otherErrorCounter = outcome(registry, NONE, OTHER);
+        this.fetchTimer = Timer.builder("url.check.fetch")
+                .description("Time from sending a check request to its response headers")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.parseTimer = Timer.builder("url.check.parse")
+                .description("Time spent reading and parsing a checked page")
+                .publishPercentileHistogram()
+                .register(registry);
+        this.bytesRead = DistributionSummary.builder("url.check.bytes")
+                .description("Bytes of a checked page read before parsing stopped")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    void recordFetch(long nanos) {
+        fetchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void recordParse(long nanos, long bytes) {
+        parseTimer.record(nanos, TimeUnit.NANOSECONDS);
+        bytesRead.record(bytes);
+    }
+
+    void recordStatus(int statusCode) {
+        var counter = statusCounters.get(statusCode);
+        if (counter == null) {
+            var statusClass = statusCode / 100;
+            counter = statusClass > 0 && statusClass < statusClassCounters.length
+                    ? statusClassCounters[statusClass]
+                    : otherStatusCounter;
+        }
+        counter.increment();
+    }
+
+    void recordError(Throwable error) {
+        var cause = error.getCause() == null ? error : error.getCause();
+        for (var entry : errorCounters.entrySet()) {
+            if (entry.getKey().isInstance(cause)) {
+                entry.getValue().increment();
+                return;
+            }
+        }
+        otherErrorCounter.increment();
+    }
+
+    private static Map<Class<? extends Throwable>, String> errorTypes() {
+        var types = new LinkedHashMap<Class<? extends Throwable>, String>();
+        types.put(UnknownHostException.class, UnknownHostException.class.getSimpleName());
+        types.put(ConnectException.class, ConnectException.class.getSimpleName());
+        types.put(SocketTimeoutException.class, SocketTimeoutException.class.getSimpleName());
+        types.put(HttpTimeoutException.class, HttpTimeoutException.class.getSimpleName());
+        types.put(SSLException.class, SSLException.class.getSimpleName());
+        return types;
+    }
+
+    private static Counter outcome(MeterRegistry registry, String status, String errorType) {
+        return Counter.builder("url.checks")
+                .description("Finished checks by response status or error type")
+                .tag("status", status)
+                .tag("error", errorType)
+                .register(registry);
+    }
+}
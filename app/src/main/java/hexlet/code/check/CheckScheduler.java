@@ -0,0 +1,118 @@
+package hexlet.code.check;
+
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlRepository;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls the {@code next_check_at} index for URLs with periodic checks and hands the due ones to the
+ * {@link CheckJobQueue}. No timer is kept per URL, so the number of schedules only costs index space.
+ * Due URLs are leased to this node through the database, so any number of nodes can share one schedule:
+ * each check runs on one node, and every node adds its workers to the cluster's throughput. A worker
+ * renews the lease when it picks a check up and drops the check if the lease has meanwhile expired and
+ * passed to another node, so a backlogged queue never runs a check twice.
+ */
+@Slf4j
+public final class CheckScheduler implements AutoCloseable {
+    private static final Duration RETRY_DELAY = Duration.ofMinutes(1);
+
+    private final CheckJobQueue checkJobQueue;
+    private final String nodeId;
+    private final int batchSize;
+    private final Duration lease;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        var thread = new Thread(runnable, "check-scheduler");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public CheckScheduler(CheckJobQueue checkJobQueue, String nodeId, int batchSize, Duration lease) {
+        this.checkJobQueue = checkJobQueue;
+        this.nodeId = nodeId;
+        this.batchSize = batchSize;
+        this.lease = lease;
+    }
+
+    public void start(Duration pollInterval) {
+        executor.scheduleWithFixedDelay(this::dispatchQuietly, pollInterval.toMillis(), pollInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Leases and queues checks of every due URL, as many as the check queue has room for. The rest stay
+     * due and are picked up by the next poll of this or another node.
+     *
+     * @return number of checks queued
+     */
+    public int dispatchDue() throws SQLException {
+        var dispatched = 0;
+        while (true) {
+            var limit = Math.min(batchSize, checkJobQueue.getRemainingCapacity());
+            if (limit == 0) {
+                return dispatched;
+            }
+            var now = LocalDateTime.now();
+            var due = UrlRepository.claimDue(nodeId, now, limit, lease);
+            for (var url : due) {
+                if (checkJobQueue.findLatest(url.getId()).map(CheckJob::isActive).orElse(false)) {
+                    UrlRepository.completeCheck(url, nodeId);
+                } else if (checkJobQueue.submit(url, job -> renew(url), job -> complete(url, job)).isPresent()) {
+                    dispatched++;
+                } else {
+                    UrlRepository.releaseCheck(url.getId(), nodeId, now.plus(RETRY_DELAY));
+                }
+            }
+            if (due.size() < limit) {
+                return dispatched;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private boolean renew(Url url) {
+        try {
+            if (UrlRepository.renewLease(url.getId(), nodeId, LocalDateTime.now().plus(lease))) {
+                return true;
+            }
+            log.debug("Lease of {} expired before its check started; skipping it", url.getName());
+        } catch (SQLException e) {
+            log.error("Could not renew the lease of {}; skipping its check", url.getName(), e);
+        }
+        return false;
+    }
+
+    private void complete(Url url, CheckJob job) {
+        if (job.getStatus() == CheckJob.Status.SKIPPED) {
+            return;
+        }
+        try {
+            if (!UrlRepository.completeCheck(url, nodeId)) {
+                log.debug("Schedule of {} changed or its lease expired before the check finished", url.getName());
+            }
+        } catch (SQLException e) {
+            log.error("Could not reschedule {}", url.getName(), e);
+        }
+    }
+
+    private void dispatchQuietly() {
+        try {
+            var dispatched = dispatchDue();
+            if (dispatched > 0) {
+                log.debug("Queued {} scheduled checks", dispatched);
+            }
+        } catch (SQLException e) {
+            log.error("Dispatching scheduled checks failed", e);
+        }
+    }
+}
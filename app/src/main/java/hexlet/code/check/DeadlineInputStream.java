@@ -0,0 +1,98 @@
+package hexlet.code.check;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounds reading a body by a deadline. Besides failing the next read once the deadline has passed, a timer
+ * interrupts the reading thread and closes the body at the deadline, so a server that sends headers and then
+ * stalls cannot hold a check forever either.
+ */
+@Slf4j
+public final class DeadlineInputStream extends FilterInputStream {
+    private final long deadlineNanos;
+    private final Thread reader = Thread.currentThread();
+    private final ScheduledFuture<?> timer;
+    private boolean closed;
+    private volatile boolean expired;
+
+    /**
+     * Wraps a body read by the current thread.
+     *
+     * @param in the body
+     * @param deadlineNanos {@link System#nanoTime()} value after which reading fails
+     * @param scheduler runs the timer that stops a blocked read
+     */
+    public DeadlineInputStream(InputStream in, long deadlineNanos, ScheduledExecutorService scheduler) {
+        super(in);
+        this.deadlineNanos = deadlineNanos;
+        this.timer = scheduler.schedule(this::expire, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public int read() throws IOException {
+        checkDeadline();
+        try {
+            return super.read();
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        checkDeadline();
+        try {
+            return super.read(b, off, len);
+        } catch (IOException e) {
+            throw translate(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            closed = true;
+        }
+        timer.cancel(false);
+        if (expired) {
+            Thread.interrupted();
+        }
+        super.close();
+    }
+
+    private void expire() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            expired = true;
+            reader.interrupt();
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            log.debug("Could not close an expired body", e);
+        }
+    }
+
+    private void checkDeadline() throws IOException {
+        if (expired || System.nanoTime() - deadlineNanos > 0) {
+            throw new IOException("Fetch deadline exceeded");
+        }
+    }
+
+    private IOException translate(IOException e) {
+        if (expired) {
+            Thread.interrupted();
+            return new IOException("Fetch deadline exceeded", e);
+        }
+        return e;
+    }
+}
@@ -0,0 +1,82 @@
+package hexlet.code.check;
+
+import kong.unirest.core.GetRequest;
+import kong.unirest.core.Unirest;
+import kong.unirest.core.UnirestInstance;
+import lombok.Getter;
+
+import java.io.InputStream;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * HTTP client shared by all checks, with its own connection pool instead of Unirest's global default.
+ * The read timeout bounds the wait for response headers; the total timeout also covers reading the body,
+ * enforced by a timer thread owned by the client.
+ */
+public final class FetchClient implements AutoCloseable {
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(5);
+    public static final Duration DEFAULT_READ_TIMEOUT = Duration.ofSeconds(10);
+    public static final Duration DEFAULT_TOTAL_TIMEOUT = Duration.ofSeconds(30);
+
+    private final UnirestInstance unirest;
+    private final ScheduledThreadPoolExecutor deadlines;
+    @Getter
+    private final Duration totalTimeout;
+
+    public FetchClient(Duration connectTimeout, Duration readTimeout, Duration totalTimeout,
+                       HttpClient.Version version) {
+        this.totalTimeout = totalTimeout;
+        this.unirest = Unirest.spawnInstance();
+        unirest.config()
+                .connectTimeout((int) connectTimeout.toMillis())
+                .requestTimeout((int) readTimeout.toMillis())
+                .version(version)
+                .followRedirects(true);
+        this.deadlines = new ScheduledThreadPoolExecutor(1, runnable -> {
+            var thread = new Thread(runnable, "fetch-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        deadlines.setRemoveOnCancelPolicy(true);
+    }
+
+    public static FetchClient withDefaults() {
+        return new FetchClient(DEFAULT_CONNECT_TIMEOUT, DEFAULT_READ_TIMEOUT, DEFAULT_TOTAL_TIMEOUT,
+                HttpClient.Version.HTTP_2);
+    }
+
+    /**
+     * Sizes the JDK connection pool behind every client. The JDK reads these properties once,
+     * so this has to run before the first request is made.
+     *
+     * @param poolSize maximum number of idle connections kept open, 0 for no limit
+     * @param keepAlive how long an idle connection stays in the pool
+     */
+    public static void configurePool(int poolSize, Duration keepAlive) {
+        System.setProperty("jdk.httpclient.connectionPoolSize", String.valueOf(poolSize));
+        System.setProperty("jdk.httpclient.keepalive.timeout", String.valueOf(keepAlive.toSeconds()));
+    }
+
+    public GetRequest get(String url) {
+        return unirest.get(url);
+    }
+
+    /**
+     * Bounds reading a response body, started on the current thread, by the given deadline.
+     *
+     * @param body the response body
+     * @param deadlineNanos {@link System#nanoTime()} value after which reading fails
+     * @return the body, cut off at the deadline even if the server stops sending
+     */
+    public InputStream withDeadline(InputStream body, long deadlineNanos) {
+        return new DeadlineInputStream(body, deadlineNanos, deadlines);
+    }
+
+    @Override
+    public void close() {
+        deadlines.shutdownNow();
+        unirest.close();
+    }
+}
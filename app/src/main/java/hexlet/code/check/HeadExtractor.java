@@ -0,0 +1,329 @@
+package hexlet.code.check;
+
+import org.jsoup.parser.Parser;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Pulls the first title, h1 and meta description out of an HTML stream without building a DOM.
+ * Reading stops as soon as all three are known, so large pages are usually read only up to their first heading.
+ */
+public final class HeadExtractor {
+    private static final int MAX_TEXT_LENGTH = 64 * 1024;
+    private static final Set<String> RAW_TEXT_TAGS = Set.of("script", "style", "textarea", "xmp", "iframe",
+            "noembed", "noframes", "plaintext");
+    private static final Set<String> BLOCK_TAGS = Set.of("address", "article", "aside", "blockquote", "br", "dd",
+            "div", "dl", "dt", "figcaption", "figure", "footer", "header", "hr", "li", "main", "nav", "ol", "p",
+            "pre", "section", "table", "tbody", "td", "tfoot", "th", "thead", "tr", "ul");
+    private static final Set<String> H1_TERMINATORS = Set.of("h1", "h2", "h3", "h4", "h5", "h6", "body", "html");
+
+    private final Reader reader;
+    private final char[] buffer = new char[8192];
+    private final int[] pushback = new int[16];
+    private int pushbackSize;
+    private int position;
+    private int limit;
+
+    private String title;
+    private String h1;
+    private String description;
+    private StringBuilder h1Text;
+
+    private HeadExtractor(Reader reader) {
+        this.reader = reader;
+    }
+
+    public static PageSummary extract(InputStream body, Charset charset, long maxBytes) throws IOException {
+        var boundedBody = new BoundedInputStream(body, maxBytes);
+        var summary = new HeadExtractor(new InputStreamReader(boundedBody, charset)).run();
+        return new PageSummary(summary.getTitle(), summary.getH1(), summary.getDescription(),
+                boundedBody.getBytesRead(), boundedBody.isTruncated());
+    }
+
+    public static PageSummary extract(Reader reader) throws IOException {
+        return new HeadExtractor(reader).run();
+    }
+
+    private PageSummary run() throws IOException {
+        while (!isComplete()) {
+            var c = read();
+            if (c == -1) {
+                break;
+            }
+            if (c == '<') {
+                readMarkup();
+            } else if (h1Text != null) {
+                append(h1Text, c);
+            }
+        }
+        if (h1Text != null) {
+            finishH1();
+        }
+        return new PageSummary(orEmpty(title), orEmpty(h1), orEmpty(description), 0, false);
+    }
+
+    private boolean isComplete() {
+        return title != null && h1 != null && description != null;
+    }
+
+    private void readMarkup() throws IOException {
+        var c = read();
+        if (c == '!') {
+            if (consumeIfNext("--")) {
+                skipPast("-->");
+            } else {
+                skipPast(">");
+            }
+            return;
+        }
+        if (c == '?') {
+            skipPast(">");
+            return;
+        }
+
+        var closing = c == '/';
+        if (closing) {
+            c = read();
+        }
+        if (!isAsciiLetter(c)) {
+            if (h1Text != null) {
+                h1Text.append(closing ? "</" : "<");
+            }
+            unread(c);
+            return;
+        }
+
+        var name = readTagName(c);
+        var attributes = readAttributes(!closing);
+        if (closing) {
+            onEndTag(name);
+        } else {
+            onStartTag(name, attributes);
+        }
+    }
+
+    private void onStartTag(String name, Map<String, String> attributes) throws IOException {
+        if (h1Text != null && H1_TERMINATORS.contains(name)) {
+            finishH1();
+        }
+        switch (name) {
+            case "title" -> {
+                var text = readRawText(name, title == null);
+                if (title == null) {
+                    title = normalizeWhitespace(Parser.unescapeEntities(text, false));
+                }
+            }
+            case "h1" -> {
+                if (h1 == null && h1Text == null) {
+                    h1Text = new StringBuilder();
+                }
+            }
+            case "meta" -> {
+                var metaName = attributes.get("name");
+                if (description == null && metaName != null && metaName.trim().equalsIgnoreCase("description")) {
+                    description = Parser.unescapeEntities(attributes.getOrDefault("content", ""), true).trim();
+                }
+            }
+            default -> {
+                if (RAW_TEXT_TAGS.contains(name)) {
+                    readRawText(name, false);
+                } else if (h1Text != null && BLOCK_TAGS.contains(name)) {
+                    h1Text.append(' ');
+                }
+            }
+        }
+    }
+
+    private void onEndTag(String name) {
+        if (h1Text == null) {
+            return;
+        }
+        if (H1_TERMINATORS.contains(name)) {
+            finishH1();
+        } else if (BLOCK_TAGS.contains(name)) {
+            h1Text.append(' ');
+        }
+    }
+
+    private void finishH1() {
+        h1 = normalizeWhitespace(Parser.unescapeEntities(h1Text.toString(), false));
+        h1Text = null;
+    }
+
+    private String readTagName(int first) throws IOException {
+        var name = new StringBuilder();
+        var c = first;
+        while (c != -1 && !isWhitespace(c) && c != '>' && c != '/') {
+            if (name.length() < 32) {
+                name.append(Character.toLowerCase((char) c));
+            }
+            c = read();
+        }
+        unread(c);
+        return name.toString();
+    }
+
+    private Map<String, String> readAttributes(boolean keep) throws IOException {
+        var attributes = new HashMap<String, String>();
+        var c = read();
+        while (c != -1 && c != '>') {
+            if (isWhitespace(c) || c == '/') {
+                c = read();
+                continue;
+            }
+            var name = new StringBuilder();
+            while (c != -1 && !isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+                append(name, Character.toLowerCase((char) c));
+                c = read();
+            }
+            while (isWhitespace(c)) {
+                c = read();
+            }
+            var value = new StringBuilder();
+            if (c == '=') {
+                c = read();
+                while (isWhitespace(c)) {
+                    c = read();
+                }
+                if (c == '"' || c == '\'') {
+                    var quote = c;
+                    c = read();
+                    while (c != -1 && c != quote) {
+                        append(value, c);
+                        c = read();
+                    }
+                    c = read();
+                } else {
+                    while (c != -1 && !isWhitespace(c) && c != '>') {
+                        append(value, c);
+                        c = read();
+                    }
+                }
+            }
+            if (keep && !name.isEmpty()) {
+                attributes.putIfAbsent(name.toString(), value.toString());
+            }
+        }
+        return attributes;
+    }
+
+    private String readRawText(String tagName, boolean keep) throws IOException {
+        var text = keep ? new StringBuilder() : null;
+        var endTag = "/" + tagName;
+        int c;
+        while ((c = read()) != -1) {
+            if (c == '<' && consumeIfNext(endTag)) {
+                var next = read();
+                if (next == -1 || isWhitespace(next) || next == '>' || next == '/') {
+                    unread(next);
+                    readAttributes(false);
+                    break;
+                }
+                unread(next);
+                pushbackString(endTag);
+            }
+            if (text != null) {
+                append(text, c);
+            }
+        }
+        return text == null ? "" : text.toString();
+    }
+
+    private void skipPast(String terminator) throws IOException {
+        var window = new StringBuilder(terminator.length() + 1);
+        int c;
+        while ((c = read()) != -1) {
+            window.append((char) c);
+            if (window.length() > terminator.length()) {
+                window.deleteCharAt(0);
+            }
+            if (window.length() == terminator.length() && window.toString().equals(terminator)) {
+                return;
+            }
+        }
+    }
+
+    private boolean consumeIfNext(String expected) throws IOException {
+        var read = new int[expected.length()];
+        for (int i = 0; i < expected.length(); i++) {
+            read[i] = read();
+            if (read[i] == -1 || Character.toLowerCase((char) read[i]) != expected.charAt(i)) {
+                for (int j = i; j >= 0; j--) {
+                    unread(read[j]);
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void pushbackString(String value) {
+        for (int i = value.length() - 1; i >= 0; i--) {
+            unread(value.charAt(i));
+        }
+    }
+
+    private int read() throws IOException {
+        if (pushbackSize > 0) {
+            return pushback[--pushbackSize];
+        }
+        if (position == limit) {
+            limit = reader.read(buffer, 0, buffer.length);
+            position = 0;
+            if (limit <= 0) {
+                limit = 0;
+                return -1;
+            }
+        }
+        return buffer[position++];
+    }
+
+    private void unread(int c) {
+        if (c != -1) {
+            pushback[pushbackSize++] = c;
+        }
+    }
+
+    private static void append(StringBuilder target, int c) {
+        if (target.length() < MAX_TEXT_LENGTH) {
+            target.append((char) c);
+        }
+    }
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\r' || c == '\f';
+    }
+
+    private static String normalizeWhitespace(String text) {
+        var result = new StringBuilder(text.length());
+        var pendingSpace = false;
+        for (int i = 0; i < text.length(); i++) {
+            var c = text.charAt(i);
+            if (isWhitespace(c) || c == ' ') {
+                pendingSpace = !result.isEmpty();
+            } else {
+                if (pendingSpace) {
+                    result.append(' ');
+                    pendingSpace = false;
+                }
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    private static String orEmpty(String value) {
+        return value == null ? "" : value;
+    }
+}
@@ -0,0 +1,16 @@
+package hexlet.code.check;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+@AllArgsConstructor
+@Getter
+public class PageSummary {
+    public static final PageSummary EMPTY = new PageSummary("", "", "", 0, false);
+
+    private final String title;
+    private final String h1;
+    private final String description;
+    private final long bytesRead;
+    private final boolean truncated;
+}
@@ -0,0 +1,42 @@
+package hexlet.code.check;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Token-bucket rate limiter; uses a lock rather than synchronized so waiting virtual threads do not pin carriers.
+ */
+public final class TokenBucket {
+    private final double permitsPerSecond;
+    private final double capacity;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(double permitsPerSecond, double capacity) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    public void acquire() throws InterruptedException {
+        while (true) {
+            long waitNanos;
+            lock.lock();
+            try {
+                var now = System.nanoTime();
+                tokens = Math.min(capacity, tokens + (now - lastRefillNanos) / 1e9 * permitsPerSecond);
+                lastRefillNanos = now;
+                if (tokens >= 1) {
+                    tokens -= 1;
+                    return;
+                }
+                waitNanos = (long) ((1 - tokens) / permitsPerSecond * 1e9);
+            } finally {
+                lock.unlock();
+            }
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+}
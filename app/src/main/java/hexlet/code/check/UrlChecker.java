@@ -0,0 +1,114 @@
+package hexlet.code.check;
+
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import kong.unirest.core.HttpResponse;
+import kong.unirest.core.HttpStatus;
+import kong.unirest.core.RawResponse;
+import kong.unirest.core.UnirestException;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.Objects;
+
+public class UrlChecker {
+    public static final long DEFAULT_MAX_BODY_BYTES = 2 * 1024 * 1024;
+
+    public static long maxBodyBytes = DEFAULT_MAX_BODY_BYTES;
+    public static FetchClient fetchClient;
+    public static CheckMetrics metrics = new CheckMetrics(new SimpleMeterRegistry());
+
+    /**
+     * Fetches and summarizes the page. When the latest known check carries validators the request is
+     * conditional, and a 304 answer reuses that check's results without downloading the body.
+     *
+     * @param url the URL to check, with its latest check first in {@link Url#getUrlChecks()} if there is one
+     * @return the new check, not yet saved
+     */
+    public static UrlCheck check(Url url) throws UnirestException {
+        try {
+            var urlCheck = fetch(url);
+            metrics.recordStatus(urlCheck.getStatusCode());
+            return urlCheck;
+        } catch (RuntimeException e) {
+            metrics.recordError(e);
+            throw e;
+        }
+    }
+
+    private static UrlCheck fetch(Url url) {
+        var previous = url.getUrlChecks().isEmpty() ? null : url.getUrlChecks().get(0);
+
+        var startNanos = System.nanoTime();
+        var deadlineNanos = startNanos + fetchClient.getTotalTimeout().toNanos();
+        var request = fetchClient.get(url.getName());
+        if (previous != null && previous.getEtag() != null) {
+            request.header("If-None-Match", previous.getEtag());
+        }
+        if (previous != null && previous.getLastModified() != null) {
+            request.header("If-Modified-Since", previous.getLastModified());
+        }
+        HttpResponse<PageSummary> response = request.asObject(raw -> summarize(raw, startNanos, deadlineNanos));
+
+        if (response.getStatus() == HttpStatus.NOT_MODIFIED && previous != null) {
+            var urlCheck = new UrlCheck(previous.getStatusCode(), previous.getTitle(), previous.getH1(),
+                    previous.getDescription(), url.getId());
+            urlCheck.setEtag(Objects.requireNonNullElse(header(response, "ETag"), previous.getEtag()));
+            urlCheck.setLastModified(Objects.requireNonNullElse(header(response, "Last-Modified"),
+                    previous.getLastModified()));
+            urlCheck.setNotModified(true);
+            return urlCheck;
+        }
+
+        int statusCode = response.getStatus();
+        var summary = Objects.requireNonNullElse(response.getBody(), PageSummary.EMPTY);
+
+        var urlCheck = new UrlCheck(statusCode, summary.getTitle(), summary.getH1(), summary.getDescription(),
+                url.getId());
+        urlCheck.setBytesRead(summary.getBytesRead());
+        urlCheck.setTruncated(summary.isTruncated());
+        urlCheck.setEtag(header(response, "ETag"));
+        urlCheck.setLastModified(header(response, "Last-Modified"));
+        return urlCheck;
+    }
+
+    private static PageSummary summarize(RawResponse rawResponse, long startNanos, long deadlineNanos) {
+        var headersNanos = System.nanoTime();
+        metrics.recordFetch(headersNanos - startNanos);
+        if (rawResponse.getStatus() == HttpStatus.NOT_MODIFIED) {
+            return PageSummary.EMPTY;
+        }
+        var content = rawResponse.getContent();
+        if (content == null) {
+            return PageSummary.EMPTY;
+        }
+        try (var body = fetchClient.withDeadline(content, deadlineNanos)) {
+            var summary = HeadExtractor.extract(body, charsetOf(rawResponse), maxBodyBytes);
+            metrics.recordParse(System.nanoTime() - headersNanos, summary.getBytesRead());
+            return summary;
+        } catch (IOException e) {
+            throw new UnirestException(e);
+        }
+    }
+
+    private static String header(HttpResponse<?> response, String name) {
+        var value = response.getHeaders().getFirst(name);
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    private static Charset charsetOf(RawResponse rawResponse) {
+        var charsetName = rawResponse.getCharSet();
+        if (charsetName == null || charsetName.isBlank()) {
+            return StandardCharsets.UTF_8;
+        }
+        try {
+            return Charset.forName(charsetName.trim());
+        } catch (IllegalCharsetNameException | UnsupportedCharsetException e) {
+            return StandardCharsets.UTF_8;
+        }
+    }
+}
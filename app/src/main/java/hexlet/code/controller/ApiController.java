@@ -0,0 +1,120 @@
+package hexlet.code.controller;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import hexlet.code.dto.api.UrlResponse;
+import hexlet.code.dto.api.UrlsResponse;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlImporter;
+import hexlet.code.repository.UrlRepository;
+import io.javalin.http.Context;
+import io.javalin.http.HttpStatus;
+import io.javalin.http.NotFoundResponse;
+import io.javalin.http.ServiceUnavailableResponse;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.ArrayList;
+
+public class ApiController {
+    public static final String NDJSON = "application/x-ndjson";
+
+    public static final ObjectMapper MAPPER = JsonMapper.builder()
+            .addModule(new JavaTimeModule())
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+            .build();
+
+    public static void urls(Context ctx) throws SQLException {
+        var pageSize = Math.clamp(ctx.queryParamAsClass("size", Integer.class)
+                .getOrDefault(UrlsController.DEFAULT_PAGE_SIZE), 1, UrlsController.MAX_PAGE_SIZE);
+        var after = ctx.queryParamAsClass("after", Long.class).getOrDefault(0L);
+
+        var urls = new ArrayList<>(UrlRepository.getPageAfter(after, pageSize + 1));
+        Long nextCursor = null;
+        if (urls.size() > pageSize) {
+            urls.remove(urls.size() - 1);
+            nextCursor = urls.get(urls.size() - 1).getId();
+        }
+        ctx.json(new UrlsResponse(urls, nextCursor));
+    }
+
+    public static void show(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        var url = UrlRepository.find(id)
+                .orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+        var before = ctx.queryParamAsClass("before", Long.class).allowNullable().get();
+        var pageSize = UrlRepository.CHECKS_PAGE_SIZE;
+        var checks = before == null
+                ? new ArrayList<>(url.getUrlChecks())
+                : new ArrayList<>(UrlCheckRepository.findPageByUrlId(id, before, pageSize + 1));
+        Long olderCursor = null;
+        if (checks.size() > pageSize) {
+            checks.subList(pageSize, checks.size()).clear();
+            olderCursor = checks.get(checks.size() - 1).getId();
+        }
+        ctx.json(new UrlResponse(url, checks, olderCursor));
+    }
+
+    public static void check(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        var url = UrlRepository.find(id)
+                .orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+
+        var job = UrlsController.checkJobQueue.submit(url)
+                .orElseThrow(() -> new ServiceUnavailableResponse("Check queue is full"));
+        ctx.status(HttpStatus.ACCEPTED);
+        ctx.json(job);
+    }
+
+    public static void schedule(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        UrlRepository.find(id).orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+
+        UrlRepository.setCheckInterval(id, UrlsController.readCheckInterval(ctx));
+        ctx.json(UrlRepository.find(id).orElseThrow());
+    }
+
+    public static void unschedule(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        UrlRepository.find(id).orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+
+        UrlRepository.setCheckInterval(id, null);
+        ctx.json(UrlRepository.find(id).orElseThrow());
+    }
+
+    /**
+     * Imports URLs from a streamed text or CSV body, see {@link UrlImporter}.
+     *
+     * @param ctx request context
+     */
+    public static void importUrls(Context ctx) throws IOException, SQLException {
+        try (var reader = new BufferedReader(new InputStreamReader(ctx.bodyInputStream(), StandardCharsets.UTF_8))) {
+            ctx.json(UrlImporter.importFrom(reader));
+        }
+    }
+
+    /**
+     * Streams every check as one JSON object per line, a page of rows at a time, so the response is
+     * never held in memory and a slow client does not keep a database connection busy.
+     *
+     * @param ctx request context
+     */
+    public static void exportChecks(Context ctx) throws SQLException, IOException {
+        ctx.contentType(NDJSON);
+        try (var generator = MAPPER.createGenerator(ctx.outputStream())) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.setPrettyPrinter(new MinimalPrettyPrinter(""));
+            UrlCheckRepository.exportAll(check -> {
+                generator.writeObject(check);
+                generator.writeRaw('\n');
+            });
+        }
+    }
+}
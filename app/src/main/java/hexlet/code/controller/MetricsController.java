@@ -0,0 +1,15 @@
+package hexlet.code.controller;
+
+import io.javalin.http.Context;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+public class MetricsController {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    public static PrometheusMeterRegistry registry;
+
+    public static void index(Context ctx) {
+        ctx.contentType(CONTENT_TYPE);
+        ctx.result(registry.scrape());
+    }
+}
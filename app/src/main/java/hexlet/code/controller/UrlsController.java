@@ -1,43 +1,81 @@
 package hexlet.code.controller;
 
+import hexlet.code.check.BulkCheckEngine;
+import hexlet.code.check.CheckJobQueue;
+import hexlet.code.dto.api.ScheduleRequest;
 import hexlet.code.dto.urls.UrlPage;
 import hexlet.code.dto.urls.UrlsPage;
 import hexlet.code.model.Url;
-import hexlet.code.model.UrlCheck;
 import hexlet.code.repository.UrlCheckRepository;
 import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
+import hexlet.code.util.UrlNormalizer;
 import io.javalin.http.Context;
 import io.javalin.http.NotFoundResponse;
-import kong.unirest.core.HttpResponse;
-import kong.unirest.core.Unirest;
-import kong.unirest.core.UnirestException;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Document;
-import org.jsoup.nodes.Element;
+import lombok.extern.slf4j.Slf4j;
 
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 
 import static io.javalin.rendering.template.TemplateUtil.model;
 
+@Slf4j
 public class UrlsController {
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+    public static final int MAX_CHECK_INTERVAL_MINUTES = 30 * 24 * 60;
+    public static final String INTERVAL_PARAM = "interval";
+
+    public static CheckJobQueue checkJobQueue;
+    public static BulkCheckEngine bulkCheckEngine;
+
     public static void index(Context ctx) throws SQLException {
         String flash = ctx.consumeSessionAttribute("flash");
         String flashType = ctx.consumeSessionAttribute("flashType");
-        var urls = UrlRepository.getEntities();
-        var page = new UrlsPage(urls, flash, flashType);
+        var pageSize = Math.clamp(ctx.queryParamAsClass("size", Integer.class).getOrDefault(DEFAULT_PAGE_SIZE),
+                1, MAX_PAGE_SIZE);
+        var after = ctx.queryParamAsClass("after", Long.class).allowNullable().get();
+        var before = ctx.queryParamAsClass("before", Long.class).allowNullable().get();
+
+        List<Url> urls;
+        Long prevCursor = null;
+        Long nextCursor = null;
+        if (before != null) {
+            urls = new ArrayList<>(UrlRepository.getPageBefore(before, pageSize + 1));
+            if (urls.size() > pageSize) {
+                urls.remove(0);
+                prevCursor = urls.get(0).getId();
+            }
+            if (!urls.isEmpty()) {
+                nextCursor = urls.get(urls.size() - 1).getId();
+            }
+        } else {
+            var afterId = after == null ? 0L : after;
+            urls = new ArrayList<>(UrlRepository.getPageAfter(afterId, pageSize + 1));
+            if (urls.size() > pageSize) {
+                urls.remove(urls.size() - 1);
+                nextCursor = urls.get(urls.size() - 1).getId();
+            }
+            if (after != null && !urls.isEmpty()) {
+                prevCursor = urls.get(0).getId();
+            }
+        }
+
+        var page = new UrlsPage(urls, prevCursor, nextCursor, pageSize, flash, flashType);
         ctx.render("urls/index.jte", model("page", page));
     }
 
 
     public static void create(Context ctx) throws SQLException {
         var urlInput = ctx.formParam("url");
-        System.out.println("Received URL: " + urlInput); // Debug
+        log.debug("Received URL {}", urlInput);
 
         if (urlInput == null || urlInput.trim().isEmpty()) {
-            System.out.println("URL is empty"); // Debug
+            log.debug("Rejected empty URL");
             setFlashAndRedirect(ctx, "URL не может быть пустым", "danger", NamedRoutes.rootPath());
             return;
         }
@@ -45,29 +83,27 @@ public class UrlsController {
         URI uri;
         try {
             uri = new URI(urlInput.trim());
-            System.out.println("Parsed URI: " + uri); // Debug
         } catch (URISyntaxException e) {
-            System.out.println("URI syntax exception: " + e.getMessage()); // Debug
+            log.debug("Rejected malformed URL {}: {}", urlInput, e.getMessage());
             setFlashAndRedirect(ctx, "Некорректный URL", "danger", NamedRoutes.rootPath());
             return;
         }
 
         if (!uri.isAbsolute()) {
-            System.out.println("URI is not absolute"); // Debug
+            log.debug("Rejected relative URL {}", uri);
             setFlashAndRedirect(ctx, "Некорректный URL", "danger", NamedRoutes.rootPath());
             return;
         }
 
-        String normalizedUrl = normalizeUrl(uri);
-        System.out.println("Normalized URL: " + normalizedUrl); // Debug
+        String normalizedUrl = UrlNormalizer.normalize(uri);
+        log.debug("Normalized {} to {}", uri, normalizedUrl);
 
-        if (UrlRepository.findByName(normalizedUrl).isPresent()) {
+        var url = new Url(normalizedUrl);
+        if (!UrlRepository.saveIfAbsent(url)) {
             setFlashAndRedirect(ctx, "Страница уже существует", "info", NamedRoutes.urlsPath());
             return;
         }
-
-        var url = new Url(normalizedUrl);
-        UrlRepository.save(url);
+        log.info("Added URL {} with id {}", normalizedUrl, url.getId());
         setFlashAndRedirect(ctx, "Страница успешно добавлена", "success", NamedRoutes.urlsPath());
     }
 
@@ -76,9 +112,21 @@ public class UrlsController {
         var id = ctx.pathParamAsClass("id", Long.class).get();
         var url = UrlRepository.find(id)
                 .orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+        var before = ctx.queryParamAsClass("before", Long.class).allowNullable().get();
+        var pageSize = UrlRepository.CHECKS_PAGE_SIZE;
+        var checks = before == null
+                ? new ArrayList<>(url.getUrlChecks())
+                : new ArrayList<>(UrlCheckRepository.findPageByUrlId(id, before, pageSize + 1));
+        Long olderCursor = null;
+        if (checks.size() > pageSize) {
+            checks.subList(pageSize, checks.size()).clear();
+            olderCursor = checks.get(checks.size() - 1).getId();
+        }
+
         String flash = ctx.consumeSessionAttribute("flash");
         String flashType = ctx.consumeSessionAttribute("flashType");
-        var page = new UrlPage(url, flash, flashType);
+        var checkJob = checkJobQueue.findLatest(id).orElse(null);
+        var page = new UrlPage(url, checks, before, olderCursor, checkJob, flash, flashType);
         ctx.render("urls/show.jte", model("page", page));
     }
 
@@ -89,66 +137,81 @@ public class UrlsController {
         var url = UrlRepository.find(id)
                 .orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
 
-        HttpResponse<String> response;
-        try {
-            response = Unirest.get(url.getName()).asString();
+        var job = checkJobQueue.submit(url);
+        if (job.isEmpty()) {
+            setFlashAndRedirect(ctx, "Очередь проверок переполнена, попробуйте позже", "danger",
+                    NamedRoutes.urlPath(id));
+            return;
+        }
 
-            int statusCode = response.getStatus();
-            String htmlContent = response.getBody();
+        ctx.header("X-Check-Job-Id", String.valueOf(job.get().getId()));
+        setFlashAndRedirect(ctx, "Проверка поставлена в очередь (задача #" + job.get().getId() + ")", "info",
+                NamedRoutes.urlPath(id));
+    }
 
-            Document doc = Jsoup.parse(htmlContent);
 
-            String title = "";
-            Element titleElement = doc.selectFirst("title");
-            if (titleElement != null) {
-                title = titleElement.text().trim();
-            }
+    public static void schedule(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        UrlRepository.find(id).orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+        var interval = readCheckInterval(ctx);
 
-            String h1 = "";
-            Element h1Element = doc.selectFirst("h1");
-            if (h1Element != null) {
-                h1 = h1Element.text().trim();
-            }
+        UrlRepository.setCheckInterval(id, interval);
+        setFlashAndRedirect(ctx, "Автоматическая проверка каждые " + interval.toMinutes() + " мин.", "success",
+                NamedRoutes.urlPath(id));
+    }
 
-            String description = "";
-            Element metaDescription = doc.selectFirst("meta[name=description]");
-            if (metaDescription != null) {
-                description = metaDescription.attr("content").trim();
-            }
 
-            var urlCheck = new UrlCheck(statusCode, title, h1, description, id);
-            UrlCheckRepository.save(urlCheck);
+    public static void unschedule(Context ctx) throws SQLException {
+        var id = ctx.pathParamAsClass("id", Long.class).get();
+        UrlRepository.find(id).orElseThrow(() -> new NotFoundResponse("Entity with id = " + id + " not found"));
+
+        UrlRepository.setCheckInterval(id, null);
+        setFlashAndRedirect(ctx, "Автоматическая проверка отключена", "success", NamedRoutes.urlPath(id));
+    }
 
-            setFlashAndRedirect(ctx, "Страница успешно проверена", "success", NamedRoutes.urlPath(id));
 
-        } catch (UnirestException e) {
-            setFlashAndRedirect(ctx, "Ошибка при проверке страницы: "
-                    + e.getMessage(), "danger", NamedRoutes.urlPath(id));
+    /**
+     * Reads the minutes between automatic checks from the {@value #INTERVAL_PARAM} form field, or from
+     * the field of the same name of a JSON body. A missing or out of range value fails with 400.
+     *
+     * @param ctx request context
+     * @return time between checks
+     */
+    static Duration readCheckInterval(Context ctx) {
+        var message = INTERVAL_PARAM + " must be between 1 and " + MAX_CHECK_INTERVAL_MINUTES + " minutes";
+        int minutes;
+        if (ctx.isJson()) {
+            minutes = ctx.bodyValidator(ScheduleRequest.class)
+                    .check(request -> isValidInterval(request.getInterval()), message)
+                    .get()
+                    .getInterval();
+        } else {
+            minutes = ctx.formParamAsClass(INTERVAL_PARAM, Integer.class)
+                    .check(UrlsController::isValidInterval, message)
+                    .get();
         }
+        return Duration.ofMinutes(minutes);
     }
 
 
-    private static void setFlashAndRedirect(Context ctx, String message, String type, String path) {
-        ctx.sessionAttribute("flash", message);
-        ctx.sessionAttribute("flashType", type);
-        System.out.println("Redirecting to: " + path + " with message: " + message); // Debug
-        ctx.redirect(path);
+    private static boolean isValidInterval(Integer minutes) {
+        return minutes != null && minutes > 0 && minutes <= MAX_CHECK_INTERVAL_MINUTES;
     }
 
-    private static String normalizeUrl(URI uri) {
-        String scheme = uri.getScheme().toLowerCase();
-        String host = uri.getHost().toLowerCase();
-        int port = uri.getPort();
 
-        if (port == -1 || port == getDefaultPort(scheme)) {
-            return scheme + "://" + host;
+    public static void checkAll(Context ctx) {
+        if (bulkCheckEngine.startAsync()) {
+            setFlashAndRedirect(ctx, "Проверка всех сайтов запущена", "info", NamedRoutes.urlsPath());
         } else {
-            return scheme + "://" + host + ":" + port;
+            setFlashAndRedirect(ctx, "Проверка всех сайтов уже выполняется", "warning", NamedRoutes.urlsPath());
         }
     }
 
-    private static int getDefaultPort(String scheme) {
-        return scheme.equals("https") ? 443 : 80;
+
+    private static void setFlashAndRedirect(Context ctx, String message, String type, String path) {
+        ctx.sessionAttribute("flash", message);
+        ctx.sessionAttribute("flashType", type);
+        log.debug("Redirecting to {} with {} message: {}", path, type, message);
+        ctx.redirect(path);
     }
 }
-
@@ -0,0 +1,14 @@
+package hexlet.code.dto.api;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+public class ScheduleRequest {
+    private Integer interval;
+}
@@ -0,0 +1,16 @@
+package hexlet.code.dto.api;
+
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class UrlResponse {
+    private Url url;
+    private List<UrlCheck> checks;
+    private Long olderCursor;
+}
@@ -0,0 +1,14 @@
+package hexlet.code.dto.api;
+
+import hexlet.code.model.Url;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+@AllArgsConstructor
+@Getter
+public class UrlsResponse {
+    private List<Url> urls;
+    private Long nextCursor;
+}
@@ -1,13 +1,49 @@
 package hexlet.code.dto.urls;
 
+import hexlet.code.check.CheckJob;
 import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 
+import java.util.List;
+import java.util.TreeSet;
+
 @AllArgsConstructor
 @Getter
 public class UrlPage {
+    public static final List<Integer> SCHEDULE_PRESET_MINUTES = List.of(5, 15, 60, 360, 1440);
+
     private Url url;
+    private List<UrlCheck> checks;
+    private Long cursor;
+    private Long olderCursor;
+    private CheckJob checkJob;
     private String flash;
     private String flashType;
+
+    /**
+     * Lists the choices of the schedule form: the presets plus the current interval when it was set
+     * to another value through the API, so saving the form does not silently change it.
+     *
+     * @return minutes between checks, ascending
+     */
+    public List<Integer> getScheduleMinutes() {
+        var minutes = new TreeSet<>(SCHEDULE_PRESET_MINUTES);
+        var current = getScheduleMinutesSelected();
+        if (current != null) {
+            minutes.add(current);
+        }
+        return List.copyOf(minutes);
+    }
+
+    /**
+     * Returns the current interval in minutes.
+     *
+     * @return minutes between checks, or {@code null} when the URL is not checked automatically
+     */
+    public Integer getScheduleMinutesSelected() {
+        var seconds = url.getCheckIntervalSeconds();
+        return seconds == null ? null : seconds / 60;
+    }
 }
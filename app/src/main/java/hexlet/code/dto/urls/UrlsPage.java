@@ -10,6 +10,9 @@ import java.util.List;
 @Getter
 public class UrlsPage {
     private List<Url> urls;
+    private Long prevCursor;
+    private Long nextCursor;
+    private int pageSize;
     private String flash;
     private String flashType;
 }
@@ -1,5 +1,6 @@
 package hexlet.code.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -13,6 +14,11 @@ public class Url {
     private Long id;
     private String name;
     private LocalDateTime createdAt;
+    private LocalDateTime lastCheckedAt;
+    private Integer lastStatusCode;
+    private Integer checkIntervalSeconds;
+    private LocalDateTime nextCheckAt;
+    @JsonIgnore
     List<UrlCheck> urlChecks;
 
     public Url(String name) {
@@ -20,6 +26,20 @@ public class Url {
         this.urlChecks = new ArrayList<>();
     }
 
+    public Url(Url other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.createdAt = other.createdAt;
+        this.lastCheckedAt = other.lastCheckedAt;
+        this.lastStatusCode = other.lastStatusCode;
+        this.checkIntervalSeconds = other.checkIntervalSeconds;
+        this.nextCheckAt = other.nextCheckAt;
+        this.urlChecks = new ArrayList<>(other.urlChecks.size());
+        for (var check : other.urlChecks) {
+            this.urlChecks.add(new UrlCheck(check));
+        }
+    }
+
     public final void addCheck(UrlCheck urlCheck) {
         urlChecks.add(urlCheck);
         urlCheck.setUrlId(id);
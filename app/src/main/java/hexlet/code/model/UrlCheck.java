@@ -14,6 +14,11 @@ public class UrlCheck {
     private String h1;
     private String description;
     private Long urlId;
+    private long bytesRead;
+    private boolean truncated;
+    private String etag;
+    private String lastModified;
+    private boolean notModified;
     private LocalDateTime createdAt;
 
     public UrlCheck(Integer statusCode, String title, String h1, String description, Long urlId) {
@@ -23,4 +28,15 @@ public class UrlCheck {
         this.description = description;
         this.urlId = urlId;
     }
+
+    public UrlCheck(UrlCheck other) {
+        this(other.statusCode, other.title, other.h1, other.description, other.urlId);
+        this.id = other.id;
+        this.bytesRead = other.bytesRead;
+        this.truncated = other.truncated;
+        this.etag = other.etag;
+        this.lastModified = other.lastModified;
+        this.notModified = other.notModified;
+        this.createdAt = other.createdAt;
+    }
 }
@@ -2,6 +2,86 @@ package hexlet.code.repository;
 
 import com.zaxxer.hikari.HikariDataSource;
 
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
 public abstract class BaseRepository {
+    public static final Duration DEFAULT_READ_YOUR_WRITES_WINDOW = Duration.ofSeconds(5);
+
+    private static final int RECENT_WRITES_PRUNE_SIZE = 10_000;
+
     public static HikariDataSource dataSource;
+
+    private static volatile HikariDataSource replicaDataSource;
+    private static volatile long readYourWritesNanos = DEFAULT_READ_YOUR_WRITES_WINDOW.toNanos();
+    private static volatile long lastUrlInsertNanos = System.nanoTime() - DEFAULT_READ_YOUR_WRITES_WINDOW.toNanos();
+    private static final Map<Long, Long> RECENT_WRITES = new ConcurrentHashMap<>();
+
+    /**
+     * Sends reads to a replica. For the given window after a URL or one of its checks is written, reads
+     * of that URL still go to {@link #dataSource}, and so do URL lists and name lookups after a new URL
+     * is saved, so a user sees their own change even while the replica lags behind.
+     *
+     * @param replica read-only data source, or null to read from the primary
+     * @param readYourWritesWindow how long reads of freshly written data stay on the primary
+     */
+    public static void configureReplica(HikariDataSource replica, Duration readYourWritesWindow) {
+        replicaDataSource = replica;
+        readYourWritesNanos = readYourWritesWindow.toNanos();
+        lastUrlInsertNanos = System.nanoTime() - readYourWritesNanos;
+        RECENT_WRITES.clear();
+    }
+
+    public static HikariDataSource getReplicaDataSource() {
+        return replicaDataSource;
+    }
+
+    static Connection getReadConnection() throws SQLException {
+        var replica = replicaDataSource;
+        if (replica == null || isRecent(lastUrlInsertNanos)) {
+            return dataSource.getConnection();
+        }
+        return replica.getConnection();
+    }
+
+    static Connection getReadConnection(Long urlId) throws SQLException {
+        var replica = replicaDataSource;
+        if (replica == null) {
+            return dataSource.getConnection();
+        }
+        var writtenAt = RECENT_WRITES.get(urlId);
+        if (writtenAt != null) {
+            if (isRecent(writtenAt)) {
+                return dataSource.getConnection();
+            }
+            RECENT_WRITES.remove(urlId, writtenAt);
+        }
+        return replica.getConnection();
+    }
+
+    static void markUrlInserted(Long urlId) {
+        lastUrlInsertNanos = System.nanoTime();
+        markWritten(urlId);
+    }
+
+    static void markWritten(Long urlId) {
+        if (replicaDataSource == null || urlId == null) {
+            return;
+        }
+        RECENT_WRITES.put(urlId, System.nanoTime());
+        if (RECENT_WRITES.size() > RECENT_WRITES_PRUNE_SIZE) {
+            RECENT_WRITES.values().removeIf(writtenAt -> !isRecent(writtenAt));
+        }
+    }
+
+    private static boolean isRecent(long writtenAtNanos) {
+        return System.nanoTime() - writtenAtNanos < readYourWritesNanos;
+    }
+
+    static boolean isPostgres(Connection conn) throws SQLException {
+        return "PostgreSQL".equals(conn.getMetaData().getDatabaseProductName());
+    }
 }
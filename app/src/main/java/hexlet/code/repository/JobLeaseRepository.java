@@ -0,0 +1,93 @@
+package hexlet.code.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Named leases in {@code job_leases} that let one node of a cluster run a periodic job while the
+ * others skip it. A lease is taken over once it expires, so a job keeps running if its node goes away.
+ */
+@Slf4j
+public class JobLeaseRepository extends BaseRepository {
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    /**
+     * Takes or renews the named lease for the given node.
+     *
+     * @param name job name
+     * @param owner id of the node
+     * @param duration how long the lease is held
+     * @return false if another node holds an unexpired lease
+     */
+    public static boolean tryAcquire(String name, String owner, Duration duration) throws SQLException {
+        var now = LocalDateTime.now();
+        var insert = "INSERT INTO job_leases (name, owner, expires_at) VALUES (?, ?, ?)";
+        var update = "UPDATE job_leases SET owner = ?, expires_at = ? "
+                + "WHERE name = ? AND (owner = ? OR expires_at <= ?)";
+        try (var conn = dataSource.getConnection()) {
+            try (var stmt = conn.prepareStatement(update)) {
+                stmt.setString(1, owner);
+                stmt.setTimestamp(2, Timestamp.valueOf(now.plus(duration)));
+                stmt.setString(3, name);
+                stmt.setString(4, owner);
+                stmt.setTimestamp(5, Timestamp.valueOf(now));
+                if (stmt.executeUpdate() > 0) {
+                    return true;
+                }
+            }
+
+            try (var stmt = conn.prepareStatement(insert)) {
+                stmt.setString(1, name);
+                stmt.setString(2, owner);
+                stmt.setTimestamp(3, Timestamp.valueOf(now.plus(duration)));
+                stmt.executeUpdate();
+                return true;
+            } catch (SQLException e) {
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    return false;
+                }
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Runs a job on this node if it can take the named lease, and keeps renewing the lease until the job
+     * returns. A run that outlasts the lease duration is therefore not started a second time elsewhere.
+     *
+     * @param name job name
+     * @param owner id of the node
+     * @param duration how long the lease is held past each renewal
+     * @param timer renews the lease while the job runs; must not be the thread running the job
+     * @param job the job to run
+     * @return false if another node holds an unexpired lease and the job did not run
+     */
+    public static boolean runLeased(String name, String owner, Duration duration, ScheduledExecutorService timer,
+                                    Runnable job) throws SQLException {
+        if (!tryAcquire(name, owner, duration)) {
+            return false;
+        }
+        var period = Math.max(1, duration.toMillis() / 3);
+        var renewal = timer.scheduleAtFixedRate(() -> {
+            try {
+                if (!tryAcquire(name, owner, duration)) {
+                    log.warn("Lease {} passed to another node while {} was still running it", name, owner);
+                }
+            } catch (SQLException e) {
+                log.error("Could not renew lease {}", name, e);
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+        try {
+            job.run();
+        } finally {
+            renewal.cancel(false);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,127 @@
+package hexlet.code.repository;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded read-through cache for repository lookups: least recently used entries are evicted first
+ * and every entry expires after a fixed time to live.
+ *
+ * @param <K> lookup key
+ * @param <V> cached value
+ */
+public final class RepositoryCache<K, V> {
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final Map<K, PendingLoads> pending = new HashMap<>();
+
+    public RepositoryCache(int maxSize, Duration ttl) {
+        this.maxSize = maxSize;
+        this.ttlNanos = ttl.toNanos();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                return size() > RepositoryCache.this.maxSize;
+            }
+        };
+    }
+
+    public interface Loader<K, V> {
+        V load(K key) throws SQLException;
+    }
+
+    /**
+     * Returns the cached value for the key, or loads and caches it. A value loaded while the same key
+     * was invalidated is returned but not cached, so a concurrent write is never hidden; writes to other
+     * keys do not affect the load.
+     *
+     * @param key lookup key
+     * @param loader reads the value from the database on a miss
+     * @return the cached or freshly loaded value
+     */
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        PendingLoads loads;
+        long loadVersion;
+        synchronized (this) {
+            var entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.expiresAt < 0) {
+                hits.incrementAndGet();
+                return entry.value;
+            }
+            if (entry != null) {
+                entries.remove(key);
+            }
+            loads = pending.computeIfAbsent(key, k -> new PendingLoads());
+            loads.count++;
+            loadVersion = loads.version;
+        }
+        misses.incrementAndGet();
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (SQLException | RuntimeException e) {
+            synchronized (this) {
+                release(key, loads);
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (maxSize > 0 && loads.version == loadVersion) {
+                entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+            }
+            release(key, loads);
+        }
+        return value;
+    }
+
+    public synchronized void invalidate(K key) {
+        entries.remove(key);
+        var loads = pending.get(key);
+        if (loads != null) {
+            loads.version++;
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        pending.values().forEach(loads -> loads.version++);
+    }
+
+    private void release(K key, PendingLoads loads) {
+        if (--loads.count == 0) {
+            pending.remove(key);
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public double getHitRate() {
+        var total = hits.get() + misses.get();
+        return total == 0 ? 0 : (double) hits.get() / total;
+    }
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private static final class PendingLoads {
+        private int count;
+        private long version;
+    }
+}
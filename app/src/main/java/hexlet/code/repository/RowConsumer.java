@@ -0,0 +1,8 @@
+package hexlet.code.repository;
+
+import java.io.IOException;
+
+@FunctionalInterface
+public interface RowConsumer<T> {
+    void accept(T row) throws IOException;
+}
@@ -2,58 +2,243 @@ package hexlet.code.repository;
 
 import hexlet.code.model.UrlCheck;
 
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 
 public class UrlCheckRepository extends BaseRepository {
+    public static final int EXPORT_PAGE_SIZE = 1000;
+    public static final int TITLE_LENGTH = 255;
+    public static final int H1_LENGTH = 255;
+    public static final int ETAG_LENGTH = 512;
+    public static final int LAST_MODIFIED_LENGTH = 64;
+
+    private static final String INSERT_SQL = "INSERT INTO url_checks "
+            + "(url_id, status_code, title, h1, description, bytes_read, truncated, etag, last_modified, not_modified, "
+            + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+    private static final String UPDATE_LATEST_SQL = "UPDATE urls SET last_checked_at = ?, last_status_code = ? "
+            + "WHERE id = ? AND (last_checked_at IS NULL OR last_checked_at <= ?)";
+
     public static void save(UrlCheck urlCheck) throws SQLException {
-        String sql = "INSERT INTO url_checks (url_id, status_code, title, h1, description, created_at) "
-                + "VALUES (?, ?, ?, ?, ?, ?)";
         try (var conn = dataSource.getConnection();
-             var preparedStatement = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            preparedStatement.setLong(1, urlCheck.getUrlId());
-            preparedStatement.setInt(2, urlCheck.getStatusCode());
-            preparedStatement.setString(3, urlCheck.getTitle());
-            preparedStatement.setString(4, urlCheck.getH1());
-            preparedStatement.setString(5, urlCheck.getDescription());
+             var preparedStatement = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+             var latestStatement = conn.prepareStatement(UPDATE_LATEST_SQL)) {
+            conn.setAutoCommit(false);
             var createdAt = LocalDateTime.now();
-            preparedStatement.setTimestamp(6, Timestamp.valueOf(createdAt));
-            preparedStatement.executeUpdate();
-            var generatedKeys = preparedStatement.getGeneratedKeys();
-            if (generatedKeys.next()) {
+            bind(preparedStatement, urlCheck, createdAt);
+            bindLatest(latestStatement, urlCheck, createdAt);
+            try {
+                preparedStatement.executeUpdate();
+                var generatedKeys = preparedStatement.getGeneratedKeys();
+                if (!generatedKeys.next()) {
+                    throw new SQLException("DB have not returned an id after saving an entity");
+                }
+                latestStatement.executeUpdate();
+                conn.commit();
                 urlCheck.setId(generatedKeys.getLong(1));
                 urlCheck.setCreatedAt(createdAt);
-            } else {
-                throw new SQLException("DB have not returned an id after saving an entity");
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            markWritten(urlCheck.getUrlId());
+            UrlRepository.invalidate(urlCheck.getUrlId());
+        }
+    }
+
+    public static void saveAll(Collection<UrlCheck> urlChecks) throws SQLException {
+        if (urlChecks.isEmpty()) {
+            return;
+        }
+        try (var conn = dataSource.getConnection();
+             var preparedStatement = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS);
+             var latestStatement = conn.prepareStatement(UPDATE_LATEST_SQL)) {
+            conn.setAutoCommit(false);
+            var createdAt = LocalDateTime.now();
+            for (var urlCheck : urlChecks) {
+                bind(preparedStatement, urlCheck, createdAt);
+                preparedStatement.addBatch();
+                bindLatest(latestStatement, urlCheck, createdAt);
+                latestStatement.addBatch();
             }
+            try {
+                preparedStatement.executeBatch();
+                var generatedKeys = preparedStatement.getGeneratedKeys();
+                for (var urlCheck : urlChecks) {
+                    if (!generatedKeys.next()) {
+                        throw new SQLException("DB have not returned an id after saving an entity");
+                    }
+                    urlCheck.setId(generatedKeys.getLong(1));
+                    urlCheck.setCreatedAt(createdAt);
+                }
+                latestStatement.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } finally {
+            urlChecks.forEach(urlCheck -> {
+                markWritten(urlCheck.getUrlId());
+                UrlRepository.invalidate(urlCheck.getUrlId());
+            });
         }
     }
 
     public static List<UrlCheck> findByUrlId(Long urlId) throws SQLException {
         var sql = "SELECT * FROM url_checks WHERE url_id = ? ORDER BY created_at DESC";
-        try (var conn = dataSource.getConnection();
+        try (var conn = getReadConnection(urlId);
              var stmt = conn.prepareStatement(sql)) {
             stmt.setLong(1, urlId);
             var resultSet = stmt.executeQuery();
             var result = new ArrayList<UrlCheck>();
             while (resultSet.next()) {
-                var id = resultSet.getLong("id");
-                var statusCode = resultSet.getInt("status_code");
-                var title = resultSet.getString("title");
-                var h1 = resultSet.getString("h1");
-                var description = resultSet.getString("description");
-                var createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
-
-                var urlCheck = new UrlCheck(statusCode, title, h1, description, urlId);
-                urlCheck.setId(id);
-                urlCheck.setCreatedAt(createdAt);
-                result.add(urlCheck);
+                result.add(map(resultSet));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Returns checks of a URL newest first, seeking by {@code (created_at, id)} so that older pages
+     * cost the same as the first one.
+     *
+     * @param urlId URL whose checks are read
+     * @param beforeCheckId id of the last check on the previous page, or null for the newest checks
+     * @param limit maximum number of checks to return
+     * @return checks strictly older than the cursor check
+     */
+    public static List<UrlCheck> findPageByUrlId(Long urlId, Long beforeCheckId, int limit) throws SQLException {
+        var sql = beforeCheckId == null
+                ? "SELECT * FROM url_checks WHERE url_id = ? ORDER BY created_at DESC, id DESC LIMIT ?"
+                : "SELECT uc.* FROM url_checks uc "
+                        + "JOIN url_checks cursor_check ON cursor_check.id = ? "
+                        + "WHERE uc.url_id = ? AND (uc.created_at, uc.id) < (cursor_check.created_at, cursor_check.id) "
+                        + "ORDER BY uc.created_at DESC, uc.id DESC LIMIT ?";
+        try (var conn = getReadConnection(urlId);
+             var stmt = conn.prepareStatement(sql)) {
+            var index = 1;
+            if (beforeCheckId != null) {
+                stmt.setLong(index++, beforeCheckId);
+            }
+            stmt.setLong(index++, urlId);
+            stmt.setInt(index, limit);
+            var resultSet = stmt.executeQuery();
+            var result = new ArrayList<UrlCheck>();
+            while (resultSet.next()) {
+                result.add(map(resultSet));
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Passes every stored check to the consumer in id order without collecting them. Checks are read in
+     * keyset pages of {@link #EXPORT_PAGE_SIZE} rows and the connection is returned before a page is
+     * handed out, so a slow consumer never holds a pooled connection and memory use does not depend on
+     * the table size.
+     *
+     * @param consumer receives each check; an {@link IOException} from it stops the export
+     * @return number of checks exported
+     */
+    public static long exportAll(RowConsumer<UrlCheck> consumer) throws SQLException, IOException {
+        long count = 0;
+        long afterId = 0;
+        List<UrlCheck> page;
+        do {
+            page = findPageAfterId(afterId, EXPORT_PAGE_SIZE);
+            for (var check : page) {
+                consumer.accept(check);
+                count++;
+            }
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
+        return count;
+    }
+
+    private static List<UrlCheck> findPageAfterId(long afterId, int limit) throws SQLException {
+        var sql = "SELECT * FROM url_checks WHERE id > ? ORDER BY id LIMIT ?";
+        try (var conn = getReadConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            var resultSet = stmt.executeQuery();
+            var result = new ArrayList<UrlCheck>(limit);
+            while (resultSet.next()) {
+                result.add(map(resultSet));
             }
             return result;
         }
     }
+
+    private static void bindLatest(PreparedStatement preparedStatement, UrlCheck urlCheck, LocalDateTime createdAt)
+            throws SQLException {
+        var timestamp = Timestamp.valueOf(createdAt);
+        preparedStatement.setTimestamp(1, timestamp);
+        preparedStatement.setInt(2, urlCheck.getStatusCode());
+        preparedStatement.setLong(3, urlCheck.getUrlId());
+        preparedStatement.setTimestamp(4, timestamp);
+    }
+
+    private static void bind(PreparedStatement preparedStatement, UrlCheck urlCheck, LocalDateTime createdAt)
+            throws SQLException {
+        preparedStatement.setLong(1, urlCheck.getUrlId());
+        preparedStatement.setInt(2, urlCheck.getStatusCode());
+        preparedStatement.setString(3, truncate(urlCheck.getTitle(), TITLE_LENGTH));
+        preparedStatement.setString(4, truncate(urlCheck.getH1(), H1_LENGTH));
+        preparedStatement.setString(5, urlCheck.getDescription());
+        preparedStatement.setLong(6, urlCheck.getBytesRead());
+        preparedStatement.setBoolean(7, urlCheck.isTruncated());
+        preparedStatement.setString(8, fitsOrNull(urlCheck.getEtag(), ETAG_LENGTH));
+        preparedStatement.setString(9, fitsOrNull(urlCheck.getLastModified(), LAST_MODIFIED_LENGTH));
+        preparedStatement.setBoolean(10, urlCheck.isNotModified());
+        preparedStatement.setTimestamp(11, Timestamp.valueOf(createdAt));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        if (value == null || value.length() <= maxLength) {
+            return value;
+        }
+        var end = Character.isHighSurrogate(value.charAt(maxLength - 1)) ? maxLength - 1 : maxLength;
+        return value.substring(0, end);
+    }
+
+    /**
+     * Drops validators that do not fit their column; a cut-off ETag or date would never match the server's.
+     *
+     * @param value validator sent by the server
+     * @param maxLength column size
+     * @return the value, or null if it is too long
+     */
+    private static String fitsOrNull(String value, int maxLength) {
+        return value == null || value.length() <= maxLength ? value : null;
+    }
+
+    static UrlCheck map(ResultSet resultSet) throws SQLException {
+        var statusCode = resultSet.getInt("status_code");
+        var title = resultSet.getString("title");
+        var h1 = resultSet.getString("h1");
+        var description = resultSet.getString("description");
+        var urlId = resultSet.getLong("url_id");
+
+        var urlCheck = new UrlCheck(statusCode, title, h1, description, urlId);
+        urlCheck.setId(resultSet.getLong("id"));
+        urlCheck.setBytesRead(resultSet.getLong("bytes_read"));
+        urlCheck.setTruncated(resultSet.getBoolean("truncated"));
+        urlCheck.setEtag(resultSet.getString("etag"));
+        urlCheck.setLastModified(resultSet.getString("last_modified"));
+        urlCheck.setNotModified(resultSet.getBoolean("not_modified"));
+        urlCheck.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+        return urlCheck;
+    }
 }
@@ -0,0 +1,305 @@
+package hexlet.code.repository;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Keeps raw checks for a fixed number of days and rolls older ones up into one
+ * {@code url_check_daily_summaries} row per URL and day. On PostgreSQL, where {@code url_checks} is
+ * partitioned by month, rows are not deleted from month partitions: once a whole month has expired its
+ * partition is detached, summarized and dropped. Checks in a partially expired month are kept until the
+ * month is over. Only rows that landed in the default partition are deleted one by one. Partitions for
+ * the current and the coming month are created on every run, whether or not retention is enabled.
+ */
+@Slf4j
+public final class UrlCheckRetention implements AutoCloseable {
+    private static final String LEASE_NAME = "check-retention";
+    private static final String PARTITION_PREFIX = "url_checks_p";
+    private static final String DEFAULT_PARTITION = "url_checks_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("yyyyMM");
+    private static final Pattern PARTITION_NAME = Pattern.compile(PARTITION_PREFIX + "(\\d{6})",
+            Pattern.CASE_INSENSITIVE);
+
+    private static final String SUMMARIZE_SQL = "INSERT INTO url_check_daily_summaries "
+            + "(url_id, check_date, check_count, status_2xx, status_3xx, status_4xx, status_5xx, status_other, "
+            + "last_status_code, last_title) "
+            + "SELECT url_id, check_date, COUNT(*), "
+            + "SUM(CASE WHEN status_code BETWEEN 200 AND 299 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN status_code BETWEEN 300 AND 399 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN status_code BETWEEN 400 AND 499 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN status_code BETWEEN 500 AND 599 THEN 1 ELSE 0 END), "
+            + "SUM(CASE WHEN status_code BETWEEN 200 AND 599 THEN 0 ELSE 1 END), "
+            + "MAX(CASE WHEN rn = 1 THEN status_code END), "
+            + "MAX(CASE WHEN rn = 1 THEN title END) "
+            + "FROM (SELECT url_id, CAST(created_at AS DATE) AS check_date, status_code, title, "
+            + "ROW_NUMBER() OVER (PARTITION BY url_id, CAST(created_at AS DATE) "
+            + "ORDER BY created_at DESC, id DESC) AS rn "
+            + "FROM %s WHERE created_at < ?) c "
+            + "GROUP BY url_id, check_date";
+
+    private final int retentionDays;
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2, runnable -> {
+        var thread = new Thread(runnable, "url-check-retention");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public UrlCheckRetention(int retentionDays) {
+        this.retentionDays = retentionDays;
+    }
+
+    /**
+     * Maintains partitions and compacts now and then every interval, on whichever node sharing the database
+     * holds the job lease.
+     *
+     * @param interval time between runs
+     * @param nodeId id of this node
+     */
+    public void schedule(Duration interval, String nodeId) {
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                JobLeaseRepository.runLeased(LEASE_NAME, nodeId, interval, scheduler, this::runQuietly);
+            } catch (SQLException e) {
+                log.error("Could not take the check retention lease", e);
+            }
+        }, 0, interval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates the partitions of the current and the coming month, then compacts checks older than the
+     * retention period unless retention is disabled.
+     *
+     * @return number of summary rows written
+     */
+    public int run() throws SQLException {
+        maintainPartitions(YearMonth.now());
+        return retentionDays > 0 ? compact(LocalDate.now().minusDays(retentionDays)) : 0;
+    }
+
+    /**
+     * Creates the partitions of the given and the following month if {@code url_checks} is partitioned.
+     * Checks of those months that already landed in the default partition are moved into the new one.
+     *
+     * @param current month to prepare, along with the next one
+     */
+    public void maintainPartitions(YearMonth current) throws SQLException {
+        try (var conn = BaseRepository.dataSource.getConnection()) {
+            if (isPartitioned(conn)) {
+                createUpcomingPartitions(conn, current);
+            }
+        }
+    }
+
+    /**
+     * Summarizes and removes every check made before the cutoff day. The cutoff is a whole day,
+     * so each day is compacted exactly once. A partitioned table keeps the checks of a month until
+     * the whole month is before the cutoff.
+     *
+     * @param cutoff first day whose checks are kept
+     * @return number of summary rows written
+     */
+    public int compact(LocalDate cutoff) throws SQLException {
+        try (var conn = BaseRepository.dataSource.getConnection()) {
+            if (isPartitioned(conn)) {
+                return compactExpiredPartitions(conn, cutoff) + compactRows(conn, DEFAULT_PARTITION, cutoff);
+            }
+            return compactRows(conn, "url_checks", cutoff);
+        } finally {
+            UrlRepository.invalidateAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void runQuietly() {
+        try {
+            run();
+        } catch (SQLException e) {
+            log.error("Check retention failed", e);
+        }
+    }
+
+    private static int compactRows(Connection conn, String table, LocalDate cutoff) throws SQLException {
+        var cutoffTime = Timestamp.valueOf(cutoff.atStartOfDay());
+        conn.setAutoCommit(false);
+        try {
+            var summaries = summarize(conn, table, cutoffTime);
+            int deleted;
+            try (var stmt = conn.prepareStatement("DELETE FROM " + table + " WHERE created_at < ?")) {
+                stmt.setTimestamp(1, cutoffTime);
+                deleted = stmt.executeUpdate();
+            }
+            conn.commit();
+            log.info("Compacted {} before {}: {} daily summaries, {} rows deleted", table, cutoff, summaries,
+                    deleted);
+            return summaries;
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Detaches each month partition that ended before the cutoff, then summarizes and drops it in one
+     * transaction. Detaching is a short statement of its own, so the lock it takes on {@code url_checks}
+     * is not held while the month is summarized. A partition left detached by an interrupted run is
+     * still found by name and finished on the next run.
+     *
+     * @param conn connection in auto-commit mode
+     * @param cutoff first day whose checks are kept
+     * @return number of summary rows written
+     */
+    private static int compactExpiredPartitions(Connection conn, LocalDate cutoff) throws SQLException {
+        var summaries = 0;
+        for (var name : findExpiredPartitions(conn, cutoff)) {
+            if (isAttached(conn, name)) {
+                try (var stmt = conn.createStatement()) {
+                    stmt.execute("ALTER TABLE url_checks DETACH PARTITION " + name);
+                }
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                var partitionSummaries = summarize(conn, name, Timestamp.valueOf(cutoff.atStartOfDay()));
+                try (var stmt = conn.createStatement()) {
+                    stmt.execute("DROP TABLE " + name);
+                }
+                conn.commit();
+                log.info("Compacted partition {}: {} daily summaries", name, partitionSummaries);
+                summaries += partitionSummaries;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+        return summaries;
+    }
+
+    private static int summarize(Connection conn, String table, Timestamp cutoffTime) throws SQLException {
+        try (var stmt = conn.prepareStatement(String.format(SUMMARIZE_SQL, table))) {
+            stmt.setTimestamp(1, cutoffTime);
+            return stmt.executeUpdate();
+        }
+    }
+
+    private static List<String> findExpiredPartitions(Connection conn, LocalDate cutoff) throws SQLException {
+        var sql = "SELECT table_name FROM information_schema.tables "
+                + "WHERE table_schema = CURRENT_SCHEMA AND LOWER(table_name) LIKE '" + PARTITION_PREFIX + "%'";
+        var expired = new ArrayList<String>();
+        try (var stmt = conn.createStatement();
+             var resultSet = stmt.executeQuery(sql)) {
+            while (resultSet.next()) {
+                var name = resultSet.getString(1);
+                var matcher = PARTITION_NAME.matcher(name);
+                if (!matcher.matches()) {
+                    continue;
+                }
+                var partitionEnd = YearMonth.parse(matcher.group(1), PARTITION_SUFFIX).plusMonths(1).atDay(1);
+                if (!partitionEnd.isAfter(cutoff)) {
+                    expired.add(name);
+                }
+            }
+        }
+        return expired;
+    }
+
+    private static boolean isPartitioned(Connection conn) throws SQLException {
+        if (!BaseRepository.isPostgres(conn)) {
+            return false;
+        }
+        var sql = "SELECT 1 FROM pg_partitioned_table pt JOIN pg_class c ON c.oid = pt.partrelid "
+                + "WHERE c.relname = 'url_checks'";
+        try (var stmt = conn.createStatement();
+             var resultSet = stmt.executeQuery(sql)) {
+            return resultSet.next();
+        }
+    }
+
+    private static boolean isAttached(Connection conn, String partition) throws SQLException {
+        var sql = "SELECT 1 FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid WHERE c.relname = ?";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, partition);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    private static void createUpcomingPartitions(Connection conn, YearMonth current) {
+        for (var month : List.of(current, current.plusMonths(1))) {
+            try {
+                createPartition(conn, month);
+            } catch (SQLException e) {
+                log.warn("Could not create partition for {}, its checks stay in the default partition", month, e);
+            }
+        }
+    }
+
+    /**
+     * Creates a month partition unless it exists. The table is filled with the month's checks from the
+     * default partition before it is attached, since PostgreSQL refuses a partition whose range the default
+     * partition still holds rows of.
+     *
+     * @param conn connection in auto-commit mode
+     * @param month month the partition covers
+     */
+    private static void createPartition(Connection conn, YearMonth month) throws SQLException {
+        var name = PARTITION_PREFIX + month.format(PARTITION_SUFFIX);
+        if (tableExists(conn, name)) {
+            return;
+        }
+        var from = month.atDay(1);
+        var to = month.plusMonths(1).atDay(1);
+        var move = "WITH moved AS (DELETE FROM " + DEFAULT_PARTITION + " WHERE created_at >= ? AND created_at < ? "
+                + "RETURNING *) INSERT INTO " + name + " SELECT * FROM moved";
+        conn.setAutoCommit(false);
+        try {
+            try (var stmt = conn.createStatement()) {
+                stmt.execute("CREATE TABLE " + name + " (LIKE url_checks INCLUDING DEFAULTS)");
+            }
+            int moved;
+            try (var stmt = conn.prepareStatement(move)) {
+                stmt.setTimestamp(1, Timestamp.valueOf(from.atStartOfDay()));
+                stmt.setTimestamp(2, Timestamp.valueOf(to.atStartOfDay()));
+                moved = stmt.executeUpdate();
+            }
+            try (var stmt = conn.createStatement()) {
+                stmt.execute("ALTER TABLE url_checks ATTACH PARTITION " + name + " FOR VALUES FROM ('" + from
+                        + "') TO ('" + to + "')");
+            }
+            conn.commit();
+            log.info("Created partition {} with {} checks moved from the default partition", name, moved);
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(true);
+        }
+    }
+
+    private static boolean tableExists(Connection conn, String name) throws SQLException {
+        var sql = "SELECT 1 FROM information_schema.tables WHERE table_schema = CURRENT_SCHEMA AND table_name = ?";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, name);
+            return stmt.executeQuery().next();
+        }
+    }
+}
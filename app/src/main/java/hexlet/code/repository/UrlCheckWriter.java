@@ -0,0 +1,109 @@
+package hexlet.code.repository;
+
+import hexlet.code.model.UrlCheck;
+import lombok.extern.slf4j.Slf4j;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Buffers checks and stores them with {@link UrlCheckRepository#saveAll} once a batch is full
+ * or the flush interval has passed, whichever comes first. If a batch is refused, its checks are
+ * saved one by one, so a single bad row costs only itself.
+ */
+@Slf4j
+public final class UrlCheckWriter implements AutoCloseable {
+    private final int batchSize;
+    private final ScheduledExecutorService flusher;
+    private final Object lock = new Object();
+    private List<UrlCheck> pending = new ArrayList<>();
+
+    public UrlCheckWriter(int batchSize, Duration flushInterval) {
+        this.batchSize = batchSize;
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "url-check-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, flushInterval.toMillis(), flushInterval.toMillis(),
+                TimeUnit.MILLISECONDS);
+    }
+
+    public void write(UrlCheck urlCheck) throws SQLException {
+        List<UrlCheck> batch = null;
+        synchronized (lock) {
+            pending.add(urlCheck);
+            if (pending.size() >= batchSize) {
+                batch = takePending();
+            }
+        }
+        if (batch != null) {
+            store(batch);
+        }
+    }
+
+    public void flush() throws SQLException {
+        List<UrlCheck> batch;
+        synchronized (lock) {
+            batch = takePending();
+        }
+        store(batch);
+    }
+
+    public int getPendingCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    @Override
+    public void close() throws SQLException {
+        flusher.shutdownNow();
+        flush();
+    }
+
+    private List<UrlCheck> takePending() {
+        var batch = pending;
+        pending = new ArrayList<>();
+        return batch;
+    }
+
+    private static void store(List<UrlCheck> batch) throws SQLException {
+        try {
+            UrlCheckRepository.saveAll(batch);
+            return;
+        } catch (SQLException e) {
+            log.warn("Could not store a batch of {} url checks, saving them one by one", batch.size(), e);
+        }
+
+        SQLException failure = null;
+        for (var urlCheck : batch) {
+            try {
+                UrlCheckRepository.save(urlCheck);
+            } catch (SQLException e) {
+                log.error("Could not store a check of url {}", urlCheck.getUrlId(), e);
+                if (failure == null) {
+                    failure = e;
+                } else {
+                    failure.addSuppressed(e);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SQLException e) {
+            log.error("Could not flush buffered url checks", e);
+        }
+    }
+}
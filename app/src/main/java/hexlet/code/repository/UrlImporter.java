@@ -0,0 +1,101 @@
+package hexlet.code.repository;
+
+import hexlet.code.util.UrlNormalizer;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Imports URLs from a text upload with one URL per line, or a CSV whose first column holds the URL.
+ * Lines are read in chunks; each chunk is normalized in parallel, deduplicated within itself and
+ * inserted with {@link UrlRepository#insertAllIfAbsent}, which skips names stored by earlier chunks,
+ * so memory use does not grow with the size of the upload.
+ */
+public class UrlImporter {
+    public static final int CHUNK_SIZE = 5_000;
+
+    private static final Set<String> HEADERS = Set.of("url", "urls", "name", "domain");
+    private static final String BYTE_ORDER_MARK = "\uFEFF";
+
+    @AllArgsConstructor
+    @Getter
+    public static final class Summary {
+        private final long total;
+        private final long inserted;
+        private final long duplicates;
+        private final long invalid;
+    }
+
+    public static Summary importFrom(BufferedReader reader) throws IOException, SQLException {
+        var tally = new Tally();
+        var chunk = new ArrayList<String>(CHUNK_SIZE);
+
+        var firstLine = true;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            var value = firstField(firstLine ? line.replace(BYTE_ORDER_MARK, "") : line);
+            if (firstLine && HEADERS.contains(value.toLowerCase())) {
+                firstLine = false;
+                continue;
+            }
+            firstLine = false;
+            if (value.isEmpty() || value.startsWith("#")) {
+                continue;
+            }
+            tally.total++;
+            chunk.add(value);
+            if (chunk.size() == CHUNK_SIZE) {
+                importChunk(chunk, tally);
+                chunk.clear();
+            }
+        }
+        importChunk(chunk, tally);
+        return new Summary(tally.total, tally.inserted, tally.duplicates, tally.invalid);
+    }
+
+    private static void importChunk(List<String> chunk, Tally tally) throws SQLException {
+        List<Optional<String>> normalized = chunk.parallelStream()
+                .map(UrlNormalizer::tryNormalize)
+                .toList();
+
+        var seen = new HashSet<String>();
+        var fresh = new ArrayList<String>();
+        for (var name : normalized) {
+            if (name.isEmpty()) {
+                tally.invalid++;
+            } else if (seen.add(name.get())) {
+                fresh.add(name.get());
+            } else {
+                tally.duplicates++;
+            }
+        }
+        var inserted = UrlRepository.insertAllIfAbsent(fresh);
+        tally.inserted += inserted;
+        tally.duplicates += fresh.size() - inserted;
+    }
+
+    private static String firstField(String line) {
+        var value = line.strip();
+        if (value.startsWith("\"")) {
+            var end = value.indexOf('"', 1);
+            return end < 0 ? value.substring(1).strip() : value.substring(1, end).strip();
+        }
+        var comma = value.indexOf(',');
+        return comma < 0 ? value : value.substring(0, comma).strip();
+    }
+
+    private static final class Tally {
+        private long total;
+        private long inserted;
+        private long duplicates;
+        private long invalid;
+    }
+}
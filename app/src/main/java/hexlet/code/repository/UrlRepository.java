@@ -1,16 +1,68 @@
 package hexlet.code.repository;
 
 import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
 
+import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
 public class UrlRepository extends BaseRepository {
+    public static final int DEFAULT_CACHE_SIZE = 10_000;
+    public static final Duration DEFAULT_CACHE_TTL = Duration.ofMinutes(1);
+    public static final int CHECKS_PAGE_SIZE = 50;
+    public static final int INSERT_BATCH_ROWS = 500;
+
+    private static final String UNIQUE_VIOLATION = "23505";
+
+    private static final String URL_COLUMNS = "id, name, created_at, last_checked_at, last_status_code, "
+            + "check_interval_seconds, next_check_at";
+    private static final double SCHEDULE_JITTER = 0.1;
+
+    private static RepositoryCache<Long, Optional<Url>> findCache =
+            new RepositoryCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL);
+    private static RepositoryCache<String, Optional<Long>> findByNameCache =
+            new RepositoryCache<>(DEFAULT_CACHE_SIZE, DEFAULT_CACHE_TTL);
+
+    /**
+     * Replaces the lookup caches behind {@link #find} and {@link #findByName}; a size of 0 disables caching.
+     *
+     * @param maxSize maximum number of entries per cache
+     * @param ttl how long an entry is served before it is read again
+     */
+    public static void configureCache(int maxSize, Duration ttl) {
+        findCache = new RepositoryCache<>(maxSize, ttl);
+        findByNameCache = new RepositoryCache<>(maxSize, ttl);
+    }
+
+    public static RepositoryCache<Long, Optional<Url>> getFindCache() {
+        return findCache;
+    }
+
+    public static RepositoryCache<String, Optional<Long>> getFindByNameCache() {
+        return findByNameCache;
+    }
+
+    static void invalidate(Long id) {
+        findCache.invalidate(id);
+    }
+
+    static void invalidateAll() {
+        findCache.clear();
+    }
+
     public static void save(Url url) throws SQLException {
         String sql = "INSERT INTO urls (name, created_at) VALUES (?, ?)";
         try (var conn = dataSource.getConnection();
@@ -23,75 +75,444 @@ public class UrlRepository extends BaseRepository {
             if (generatedKeys.next()) {
                 url.setId(generatedKeys.getLong(1));
                 url.setCreatedAt(createdAt);
+                markUrlInserted(url.getId());
             } else {
                 throw new SQLException("DB have not returned an id after saving an entity");
             }
+        } finally {
+            findByNameCache.invalidate(url.getName());
+            if (url.getId() != null) {
+                findCache.invalidate(url.getId());
+            }
         }
     }
 
-    public static Optional<Url> find(Long id) throws SQLException {
-        var sql = "SELECT * FROM urls WHERE id = ?";
-        try (var conn = dataSource.getConnection();
-             var stmt = conn.prepareStatement(sql)) {
-            stmt.setLong(1, id);
+    /**
+     * Saves the URL unless one with the same name exists, in a single statement, so concurrent saves of the
+     * same name never fail: on PostgreSQL with {@code ON CONFLICT DO NOTHING RETURNING id}, elsewhere by
+     * treating a unique-constraint violation as "already exists".
+     *
+     * @param url URL to save; its id and creation time are set when it is inserted
+     * @return true if the URL was inserted, false if the name was already taken
+     */
+    public static boolean saveIfAbsent(Url url) throws SQLException {
+        var createdAt = LocalDateTime.now();
+        try (var conn = dataSource.getConnection()) {
+            var id = isPostgres(conn)
+                    ? insertOnConflictDoNothing(conn, url.getName(), createdAt)
+                    : insertUnlessDuplicate(conn, url.getName(), createdAt);
+            if (id.isEmpty()) {
+                return false;
+            }
+            url.setId(id.get());
+            url.setCreatedAt(createdAt);
+            markUrlInserted(url.getId());
+            return true;
+        } finally {
+            findByNameCache.invalidate(url.getName());
+            if (url.getId() != null) {
+                findCache.invalidate(url.getId());
+            }
+        }
+    }
+
+    private static Optional<Long> insertOnConflictDoNothing(Connection conn, String name, LocalDateTime createdAt)
+            throws SQLException {
+        var sql = "INSERT INTO urls (name, created_at) VALUES (?, ?) ON CONFLICT (name) DO NOTHING RETURNING id";
+        try (var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, name);
+            stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
             var resultSet = stmt.executeQuery();
-            if (resultSet.next()) {
-                var name = resultSet.getString("name");
-                var createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
-                var url = new Url(name);
-                url.setId(id);
-                url.setCreatedAt(createdAt);
+            return resultSet.next() ? Optional.of(resultSet.getLong(1)) : Optional.empty();
+        }
+    }
 
-                var checks = UrlCheckRepository.findByUrlId(id);
-                url.setUrlChecks(checks);
+    private static Optional<Long> insertUnlessDuplicate(Connection conn, String name, LocalDateTime createdAt)
+            throws SQLException {
+        var sql = "INSERT INTO urls (name, created_at) VALUES (?, ?)";
+        try (var stmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.setTimestamp(2, Timestamp.valueOf(createdAt));
+            try {
+                stmt.executeUpdate();
+            } catch (SQLException e) {
+                if (UNIQUE_VIOLATION.equals(e.getSQLState())) {
+                    return Optional.empty();
+                }
+                throw e;
+            }
+            var generatedKeys = stmt.getGeneratedKeys();
+            if (!generatedKeys.next()) {
+                throw new SQLException("DB have not returned an id after saving an entity");
+            }
+            return Optional.of(generatedKeys.getLong(1));
+        }
+    }
 
-                return Optional.of(url);
+    /**
+     * Inserts the names that are not stored yet, {@link #INSERT_BATCH_ROWS} rows per statement. Existing names
+     * are skipped by the unique index on {@code urls.name}: {@code ON CONFLICT DO NOTHING} on PostgreSQL,
+     * {@code MERGE ... WHEN NOT MATCHED} elsewhere.
+     *
+     * @param names normalized names without duplicates
+     * @return number of names inserted
+     */
+    public static int insertAllIfAbsent(List<String> names) throws SQLException {
+        if (names.isEmpty()) {
+            return 0;
+        }
+        var createdAt = Timestamp.valueOf(LocalDateTime.now());
+        var inserted = 0;
+        try (var conn = dataSource.getConnection()) {
+            var postgres = isPostgres(conn);
+            for (int from = 0; from < names.size(); from += INSERT_BATCH_ROWS) {
+                var batch = names.subList(from, Math.min(names.size(), from + INSERT_BATCH_ROWS));
+                try (var stmt = conn.prepareStatement(insertIfAbsentSql(batch.size(), postgres))) {
+                    var index = 1;
+                    for (var name : batch) {
+                        stmt.setString(index++, name);
+                        stmt.setTimestamp(index++, createdAt);
+                    }
+                    inserted += stmt.executeUpdate();
+                }
             }
-            return Optional.empty();
+        } finally {
+            markUrlInserted(null);
+            names.forEach(findByNameCache::invalidate);
         }
+        return inserted;
+    }
+
+    private static String insertIfAbsentSql(int rows, boolean postgres) {
+        if (postgres) {
+            var values = String.join(", ", Collections.nCopies(rows, "(?, ?)"));
+            return "INSERT INTO urls (name, created_at) VALUES " + values + " ON CONFLICT (name) DO NOTHING";
+        }
+        var values = String.join(", ", Collections.nCopies(rows, "(CAST(? AS VARCHAR(255)), CAST(? AS TIMESTAMP))"));
+        return "MERGE INTO urls u USING (VALUES " + values + ") AS v(name, created_at) ON u.name = v.name "
+                + "WHEN NOT MATCHED THEN INSERT (name, created_at) VALUES (v.name, v.created_at)";
+    }
+
+    /**
+     * Finds a URL with its newest checks: at most {@link #CHECKS_PAGE_SIZE} + 1, the extra one
+     * only telling callers that older checks exist. Every call returns its own copy of the cached URL.
+     *
+     * @param id URL id
+     * @return the URL, or empty if there is none with this id
+     */
+    public static Optional<Url> find(Long id) throws SQLException {
+        return findCache.get(id, UrlRepository::load).map(Url::new);
     }
 
+    /**
+     * Finds a URL by name. Only the name-to-id mapping is cached per name, so the returned URL
+     * is as fresh as the one {@link #find} returns.
+     *
+     * @param name normalized URL
+     * @return the URL, or empty if there is none with this name
+     */
     public static Optional<Url> findByName(String name) throws SQLException {
-        var sql = "SELECT * FROM urls WHERE name = ?";
-        try (var conn = dataSource.getConnection();
+        var id = findByNameCache.get(name, UrlRepository::loadIdByName);
+        return id.isPresent() ? find(id.get()) : Optional.empty();
+    }
+
+    private static Optional<Url> load(Long id) throws SQLException {
+        var sql = "SELECT " + URL_COLUMNS + " FROM urls WHERE id = ?";
+        Url url;
+        try (var conn = getReadConnection(id);
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, id);
+            var resultSet = stmt.executeQuery();
+            if (!resultSet.next()) {
+                return Optional.empty();
+            }
+            url = mapUrl(resultSet);
+        }
+        // Checks are read after the connection is returned, so one lookup never holds two connections.
+        url.setUrlChecks(UrlCheckRepository.findPageByUrlId(id, null, CHECKS_PAGE_SIZE + 1));
+        return Optional.of(url);
+    }
+
+    private static Optional<Long> loadIdByName(String name) throws SQLException {
+        var sql = "SELECT id FROM urls WHERE name = ?";
+        try (var conn = getReadConnection();
              var stmt = conn.prepareStatement(sql)) {
             stmt.setString(1, name);
             var resultSet = stmt.executeQuery();
             if (resultSet.next()) {
-                var id = resultSet.getLong("id");
-                var createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
-                var url = new Url(name);
-                url.setId(id);
-                url.setCreatedAt(createdAt);
-                return Optional.of(url);
+                return Optional.of(resultSet.getLong("id"));
             }
             return Optional.empty();
         }
     }
 
     public static List<Url> getEntities() throws SQLException {
-        var sql = "SELECT * FROM urls";
+        var sql = "SELECT " + URL_COLUMNS + " FROM urls ORDER BY id";
+        try (var conn = getReadConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            return readUrls(stmt.executeQuery());
+        }
+    }
+
+    public static List<Url> getPageAfter(long afterId, int limit) throws SQLException {
+        var sql = "SELECT " + URL_COLUMNS + " FROM urls WHERE id > ? ORDER BY id LIMIT ?";
+        try (var conn = getReadConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            return readUrls(stmt.executeQuery());
+        }
+    }
+
+    public static List<Url> getPageBefore(long beforeId, int limit) throws SQLException {
+        var sql = "SELECT " + URL_COLUMNS + " FROM "
+                + "(SELECT " + URL_COLUMNS + " FROM urls WHERE id < ? ORDER BY id DESC LIMIT ?) page ORDER BY id";
+        try (var conn = getReadConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, beforeId);
+            stmt.setInt(2, limit);
+            return readUrls(stmt.executeQuery());
+        }
+    }
+
+    /**
+     * Turns periodic checks of a URL on or off. The first check is placed at a random point within the
+     * first interval, so URLs scheduled together do not all come due at once.
+     *
+     * @param id URL id
+     * @param interval time between checks, or null to stop checking the URL automatically
+     */
+    public static void setCheckInterval(Long id, Duration interval) throws SQLException {
+        var sql = "UPDATE urls SET check_interval_seconds = ?, next_check_at = ?, lease_owner = NULL, "
+                + "lease_expires_at = NULL WHERE id = ?";
         try (var conn = dataSource.getConnection();
              var stmt = conn.prepareStatement(sql)) {
-            var resultSet = stmt.executeQuery();
-            var result = new ArrayList<Url>();
-            while (resultSet.next()) {
-                var id = resultSet.getLong("id");
-                var name = resultSet.getString("name");
-                var createdAt = resultSet.getTimestamp("created_at").toLocalDateTime();
+            if (interval == null) {
+                stmt.setNull(1, Types.INTEGER);
+                stmt.setNull(2, Types.TIMESTAMP);
+            } else {
+                var seconds = Math.toIntExact(interval.toSeconds());
+                var offset = ThreadLocalRandom.current().nextLong(TimeUnit.SECONDS.toMillis(seconds));
+                stmt.setInt(1, seconds);
+                stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now().plus(offset, ChronoUnit.MILLIS)));
+            }
+            stmt.setLong(3, id);
+            stmt.executeUpdate();
+        } finally {
+            markWritten(id);
+            invalidate(id);
+        }
+    }
 
-                var url = new Url(name);
-                url.setId(id);
-                url.setCreatedAt(createdAt);
+    /**
+     * Leases URLs whose next check is due, oldest first, to the given node. Due rows are selected with
+     * {@code FOR UPDATE SKIP LOCKED}, so nodes claiming at the same time take disjoint batches instead of
+     * waiting on each other, and a URL stays with its owner until {@link #completeCheck} or
+     * {@link #releaseCheck} is called or the lease runs out. A node that dies mid-check therefore only
+     * delays the URL by the lease duration, after which any node may claim it again.
+     *
+     * @param owner id of the claiming node
+     * @param now current time
+     * @param limit maximum number of URLs to take
+     * @param lease how long the URLs stay reserved for the owner
+     * @return leased URLs, each with its newest check for conditional requests
+     */
+    public static List<Url> claimDue(String owner, LocalDateTime now, int limit, Duration lease)
+            throws SQLException {
+        var lock = "SELECT id FROM urls WHERE next_check_at <= ? "
+                + "AND (lease_expires_at IS NULL OR lease_expires_at <= ?) "
+                + "ORDER BY next_check_at LIMIT ? FOR UPDATE SKIP LOCKED";
+        var update = "UPDATE urls SET lease_owner = ?, lease_expires_at = ? WHERE id = ?";
+        try (var conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                var ids = new ArrayList<Long>();
+                try (var stmt = conn.prepareStatement(lock)) {
+                    stmt.setTimestamp(1, Timestamp.valueOf(now));
+                    stmt.setTimestamp(2, Timestamp.valueOf(now));
+                    stmt.setInt(3, limit);
+                    var resultSet = stmt.executeQuery();
+                    while (resultSet.next()) {
+                        ids.add(resultSet.getLong(1));
+                    }
+                }
+                if (ids.isEmpty()) {
+                    conn.commit();
+                    return List.of();
+                }
 
-                var checks = UrlCheckRepository.findByUrlId(id);
-                if (!checks.isEmpty()) {
-                    url.getUrlChecks().add(checks.get(0));
+                try (var stmt = conn.prepareStatement(update)) {
+                    for (var id : ids) {
+                        stmt.setString(1, owner);
+                        stmt.setTimestamp(2, Timestamp.valueOf(now.plus(lease)));
+                        stmt.setLong(3, id);
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
                 }
 
-                result.add(url);
+                var placeholders = String.join(", ", Collections.nCopies(ids.size(), "?"));
+                var select = withLatestCheck("SELECT " + URL_COLUMNS + " FROM urls WHERE id IN (" + placeholders
+                        + ") ORDER BY id");
+                var claimed = new ArrayList<Url>();
+                try (var stmt = conn.prepareStatement(select)) {
+                    for (int i = 0; i < ids.size(); i++) {
+                        stmt.setLong(i + 1, ids.get(i));
+                    }
+                    var resultSet = stmt.executeQuery();
+                    while (resultSet.next()) {
+                        claimed.add(mapUrlWithLatestCheck(resultSet));
+                    }
+                }
+                conn.commit();
+                return claimed;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Ends a lease after the check ran and schedules the next one a jittered interval from now. Nothing
+     * happens if the lease has passed to another node or the schedule was changed in the meantime.
+     *
+     * @param url the leased URL, as returned by {@link #claimDue}
+     * @param owner id of the node holding the lease
+     * @return false if the lease was no longer held by the owner
+     */
+    public static boolean completeCheck(Url url, String owner) throws SQLException {
+        return updateLease(url.getId(), owner, nextCheckAt(LocalDateTime.now(), url.getCheckIntervalSeconds()));
+    }
+
+    /**
+     * Ends a lease without checking the URL and moves its next check to the given time, for a claimed
+     * check that could not be started.
+     *
+     * @param id URL id
+     * @param owner id of the node holding the lease
+     * @param at new time of the next check
+     * @return false if the lease was no longer held by the owner
+     */
+    public static boolean releaseCheck(Long id, String owner, LocalDateTime at) throws SQLException {
+        return updateLease(id, owner, at);
+    }
+
+    /**
+     * Extends a lease still held by the owner, so a check that waited in a queue is not claimed again
+     * while it runs.
+     *
+     * @param id URL id
+     * @param owner id of the node holding the lease
+     * @param expiresAt new end of the lease
+     * @return false if the lease has passed to another node or the schedule was removed
+     */
+    public static boolean renewLease(Long id, String owner, LocalDateTime expiresAt) throws SQLException {
+        var sql = "UPDATE urls SET lease_expires_at = ? "
+                + "WHERE id = ? AND lease_owner = ? AND check_interval_seconds IS NOT NULL";
+        try (var conn = dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(expiresAt));
+            stmt.setLong(2, id);
+            stmt.setString(3, owner);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    private static boolean updateLease(Long id, String owner, LocalDateTime nextCheckAt) throws SQLException {
+        var sql = "UPDATE urls SET next_check_at = ?, lease_owner = NULL, lease_expires_at = NULL "
+                + "WHERE id = ? AND lease_owner = ? AND check_interval_seconds IS NOT NULL";
+        try (var conn = dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setTimestamp(1, Timestamp.valueOf(nextCheckAt));
+            stmt.setLong(2, id);
+            stmt.setString(3, owner);
+            return stmt.executeUpdate() > 0;
+        } finally {
+            markWritten(id);
+            invalidate(id);
+        }
+    }
+
+    private static LocalDateTime nextCheckAt(LocalDateTime from, int intervalSeconds) {
+        var intervalMillis = TimeUnit.SECONDS.toMillis(intervalSeconds);
+        var jitterMillis = (long) (intervalMillis * SCHEDULE_JITTER);
+        var offset = intervalMillis + ThreadLocalRandom.current().nextLong(-jitterMillis, jitterMillis + 1);
+        return from.plus(offset, ChronoUnit.MILLIS);
+    }
+
+    /**
+     * Like {@link #getPageAfter}, but also loads each URL's newest check, whose validators and
+     * parsed fields a re-check needs.
+     *
+     * @param afterId id of the last URL of the previous page, 0 for the first page
+     * @param limit maximum number of URLs to return
+     * @return URLs ordered by id, each with at most one check
+     */
+    public static List<Url> getPageWithLatestCheckAfter(long afterId, int limit) throws SQLException {
+        var sql = withLatestCheck("SELECT " + URL_COLUMNS + " FROM urls WHERE id > ? ORDER BY id LIMIT ?");
+        try (var conn = getReadConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, afterId);
+            stmt.setInt(2, limit);
+            var resultSet = stmt.executeQuery();
+            var result = new ArrayList<Url>();
+            while (resultSet.next()) {
+                result.add(mapUrlWithLatestCheck(resultSet));
             }
             return result;
         }
     }
+
+    private static String withLatestCheck(String urlsQuery) {
+        return "WITH page AS (" + urlsQuery + ") "
+                + "SELECT p.*, "
+                + "c.id AS check_id, c.status_code, c.title, c.h1, c.description, c.etag, c.last_modified, "
+                + "c.created_at AS check_created_at "
+                + "FROM page p "
+                + "LEFT JOIN (SELECT uc.*, ROW_NUMBER() OVER "
+                + "(PARTITION BY uc.url_id ORDER BY uc.created_at DESC, uc.id DESC) AS rn "
+                + "FROM url_checks uc WHERE uc.url_id IN (SELECT id FROM page)) c "
+                + "ON c.url_id = p.id AND c.rn = 1 "
+                + "ORDER BY p.id";
+    }
+
+    private static List<Url> readUrls(ResultSet resultSet) throws SQLException {
+        var result = new ArrayList<Url>();
+        while (resultSet.next()) {
+            result.add(mapUrl(resultSet));
+        }
+        return result;
+    }
+
+    private static Url mapUrl(ResultSet resultSet) throws SQLException {
+        var url = new Url(resultSet.getString("name"));
+        url.setId(resultSet.getLong("id"));
+        url.setCreatedAt(resultSet.getTimestamp("created_at").toLocalDateTime());
+        var lastCheckedAt = resultSet.getTimestamp("last_checked_at");
+        url.setLastCheckedAt(lastCheckedAt == null ? null : lastCheckedAt.toLocalDateTime());
+        url.setLastStatusCode(resultSet.getObject("last_status_code", Integer.class));
+        url.setCheckIntervalSeconds(resultSet.getObject("check_interval_seconds", Integer.class));
+        var nextCheckAt = resultSet.getTimestamp("next_check_at");
+        url.setNextCheckAt(nextCheckAt == null ? null : nextCheckAt.toLocalDateTime());
+        return url;
+    }
+
+    private static Url mapUrlWithLatestCheck(ResultSet resultSet) throws SQLException {
+        var url = mapUrl(resultSet);
+
+        var checkId = resultSet.getLong("check_id");
+        if (!resultSet.wasNull()) {
+            var check = new UrlCheck(resultSet.getInt("status_code"), resultSet.getString("title"),
+                    resultSet.getString("h1"), resultSet.getString("description"), url.getId());
+            check.setId(checkId);
+            check.setEtag(resultSet.getString("etag"));
+            check.setLastModified(resultSet.getString("last_modified"));
+            check.setCreatedAt(resultSet.getTimestamp("check_created_at").toLocalDateTime());
+            url.getUrlChecks().add(check);
+        }
+        return url;
+    }
 }
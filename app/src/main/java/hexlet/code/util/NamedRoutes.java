@@ -9,6 +9,10 @@ public class NamedRoutes {
         return "/urls";
     }
 
+    public static String urlsChecksPath() {
+        return "/urls/checks";
+    }
+
     public static String urlPath(Long id) {
         return urlPath(String.valueOf(id));
     }
@@ -24,4 +28,60 @@ public class NamedRoutes {
     public static String urlChecksPath(String id) {
         return "/urls/" + id + "/checks";
     }
+
+    public static String metricsPath() {
+        return "/metrics";
+    }
+
+    public static String apiUrlsPath() {
+        return "/api/v1/urls";
+    }
+
+    public static String apiUrlPath(Long id) {
+        return apiUrlPath(String.valueOf(id));
+    }
+
+    public static String apiUrlPath(String id) {
+        return "/api/v1/urls/" + id;
+    }
+
+    public static String apiUrlChecksPath(Long id) {
+        return apiUrlChecksPath(String.valueOf(id));
+    }
+
+    public static String apiUrlChecksPath(String id) {
+        return "/api/v1/urls/" + id + "/checks";
+    }
+
+    public static String apiChecksExportPath() {
+        return "/api/v1/checks/export";
+    }
+
+    public static String apiUrlsImportPath() {
+        return "/api/v1/urls/import";
+    }
+
+    public static String urlSchedulePath(Long id) {
+        return urlSchedulePath(String.valueOf(id));
+    }
+
+    public static String urlSchedulePath(String id) {
+        return "/urls/" + id + "/schedule";
+    }
+
+    public static String urlScheduleDeletePath(Long id) {
+        return urlScheduleDeletePath(String.valueOf(id));
+    }
+
+    public static String urlScheduleDeletePath(String id) {
+        return urlSchedulePath(id) + "/delete";
+    }
+
+    public static String apiUrlSchedulePath(Long id) {
+        return apiUrlSchedulePath(String.valueOf(id));
+    }
+
+    public static String apiUrlSchedulePath(String id) {
+        return "/api/v1/urls/" + id + "/schedule";
+    }
 }
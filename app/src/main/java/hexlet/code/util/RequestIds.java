@@ -0,0 +1,32 @@
+package hexlet.code.util;
+
+import io.javalin.http.Context;
+import org.slf4j.MDC;
+
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+/**
+ * Gives every request a correlation id, taken from the {@value #HEADER} request header when it looks safe
+ * to log and generated otherwise. The id is put into the logging MDC for the request thread and echoed
+ * in the response.
+ */
+public class RequestIds {
+    public static final String HEADER = "X-Request-Id";
+    public static final String MDC_KEY = "requestId";
+
+    private static final Pattern VALID_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    public static void assign(Context ctx) {
+        var requestId = ctx.header(HEADER);
+        if (requestId == null || !VALID_ID.matcher(requestId).matches()) {
+            requestId = UUID.randomUUID().toString();
+        }
+        MDC.put(MDC_KEY, requestId);
+        ctx.header(HEADER, requestId);
+    }
+
+    public static void clear(Context ctx) {
+        MDC.remove(MDC_KEY);
+    }
+}
@@ -0,0 +1,56 @@
+package hexlet.code.util;
+
+import io.javalin.http.Context;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every request by method, matched route and status. Timers are looked up once per combination,
+ * so a request costs two {@link System#nanoTime()} calls and one histogram update.
+ */
+public final class RequestMetrics {
+    private static final String START_ATTRIBUTE = RequestMetrics.class.getName() + ".start";
+    private static final String UNMATCHED = "UNMATCHED";
+
+    private final MeterRegistry registry;
+    private final Map<RouteKey, Timer> timers = new ConcurrentHashMap<>();
+
+    public RequestMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void start(Context ctx) {
+        ctx.attribute(START_ATTRIBUTE, System.nanoTime());
+    }
+
+    public void record(Context ctx) {
+        Long startNanos = ctx.attribute(START_ATTRIBUTE);
+        if (startNanos == null) {
+            return;
+        }
+        var key = new RouteKey(ctx.method().name(), route(ctx), ctx.statusCode());
+        timers.computeIfAbsent(key, this::register).record(System.nanoTime() - startNanos, TimeUnit.NANOSECONDS);
+    }
+
+    private Timer register(RouteKey key) {
+        return Timer.builder("http.server.requests")
+                .description("Handled HTTP requests by route")
+                .tag("method", key.method())
+                .tag("route", key.route())
+                .tag("status", String.valueOf(key.status()))
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+
+    private static String route(Context ctx) {
+        var path = ctx.endpointHandlerPath();
+        return path == null || path.isEmpty() || "*".equals(path) ? UNMATCHED : path;
+    }
+
+    private record RouteKey(String method, String route, int status) {
+    }
+}
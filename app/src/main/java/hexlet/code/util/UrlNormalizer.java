@@ -0,0 +1,47 @@
+package hexlet.code.util;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.Optional;
+
+public class UrlNormalizer {
+    public static final int MAX_LENGTH = 255;
+
+    /**
+     * Normalizes user input without throwing, for callers that only count what they skip.
+     *
+     * @param input raw URL as typed or uploaded
+     * @return the normalized URL, or empty if the input is not an absolute URL with a host that fits a URL name
+     */
+    public static Optional<String> tryNormalize(String input) {
+        if (input == null || input.isBlank()) {
+            return Optional.empty();
+        }
+        try {
+            var uri = new URI(input.trim());
+            if (!uri.isAbsolute() || uri.getHost() == null) {
+                return Optional.empty();
+            }
+            var normalized = normalize(uri);
+            return normalized.length() > MAX_LENGTH ? Optional.empty() : Optional.of(normalized);
+        } catch (URISyntaxException e) {
+            return Optional.empty();
+        }
+    }
+
+    public static String normalize(URI uri) {
+        String scheme = uri.getScheme().toLowerCase();
+        String host = uri.getHost().toLowerCase();
+        int port = uri.getPort();
+
+        if (port == -1 || port == getDefaultPort(scheme)) {
+            return scheme + "://" + host;
+        } else {
+            return scheme + "://" + host + ":" + port;
+        }
+    }
+
+    private static int getDefaultPort(String scheme) {
+        return scheme.equals("https") ? 443 : 80;
+    }
+}
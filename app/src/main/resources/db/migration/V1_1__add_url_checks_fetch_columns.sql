@@ -0,0 +1,5 @@
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS bytes_read BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS truncated BOOLEAN NOT NULL DEFAULT FALSE;
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS etag VARCHAR(512);
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS last_modified VARCHAR(64);
+ALTER TABLE url_checks ADD COLUMN IF NOT EXISTS not_modified BOOLEAN NOT NULL DEFAULT FALSE;
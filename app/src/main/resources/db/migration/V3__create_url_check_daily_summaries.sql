@@ -0,0 +1,13 @@
+CREATE TABLE url_check_daily_summaries (
+    url_id BIGINT NOT NULL REFERENCES urls(id) ON DELETE CASCADE,
+    check_date DATE NOT NULL,
+    check_count INTEGER NOT NULL,
+    status_2xx INTEGER NOT NULL DEFAULT 0,
+    status_3xx INTEGER NOT NULL DEFAULT 0,
+    status_4xx INTEGER NOT NULL DEFAULT 0,
+    status_5xx INTEGER NOT NULL DEFAULT 0,
+    status_other INTEGER NOT NULL DEFAULT 0,
+    last_status_code INTEGER,
+    last_title VARCHAR(255),
+    PRIMARY KEY (url_id, check_date)
+);
@@ -0,0 +1,8 @@
+ALTER TABLE urls ADD COLUMN last_checked_at TIMESTAMP;
+ALTER TABLE urls ADD COLUMN last_status_code INTEGER;
+
+UPDATE urls SET
+    last_checked_at = (SELECT uc.created_at FROM url_checks uc WHERE uc.url_id = urls.id
+                       ORDER BY uc.created_at DESC, uc.id DESC LIMIT 1),
+    last_status_code = (SELECT uc.status_code FROM url_checks uc WHERE uc.url_id = urls.id
+                        ORDER BY uc.created_at DESC, uc.id DESC LIMIT 1);
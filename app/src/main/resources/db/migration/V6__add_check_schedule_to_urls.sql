@@ -0,0 +1,4 @@
+ALTER TABLE urls ADD COLUMN check_interval_seconds INTEGER;
+ALTER TABLE urls ADD COLUMN next_check_at TIMESTAMP;
+
+CREATE INDEX urls_next_check_at_idx ON urls (next_check_at);
@@ -0,0 +1,8 @@
+ALTER TABLE urls ADD COLUMN lease_owner VARCHAR(64);
+ALTER TABLE urls ADD COLUMN lease_expires_at TIMESTAMP;
+
+CREATE TABLE job_leases (
+    name VARCHAR(64) PRIMARY KEY,
+    owner VARCHAR(64) NOT NULL,
+    expires_at TIMESTAMP NOT NULL
+);
@@ -0,0 +1,194 @@
+package hexlet.code;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import hexlet.code.controller.ApiController;
+import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.http.HttpStatus;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.FormBody;
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Map;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class ApiControllerTest extends BaseTest {
+
+    @Test
+    void testListUrlsPagesByCursor() {
+        JavalinTest.test(appTest, (server, client) -> {
+            for (int i = 1; i <= 3; i++) {
+                UrlRepository.save(new Url("https://api-" + i + ".com"));
+            }
+
+            var response = client.get(NamedRoutes.apiUrlsPath() + "?size=2");
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(response.header("Content-Type")).startsWith("application/json");
+
+            var body = ApiController.MAPPER.readTree(response.body().string());
+            assertThat(body.get("urls").size()).isEqualTo(2);
+            assertThat(body.get("urls").get(0).get("name").asText()).isEqualTo("https://api-1.com");
+            assertThat(body.get("urls").get(0).has("urlChecks")).isFalse();
+
+            var next = client.get(NamedRoutes.apiUrlsPath() + "?size=2&after=" + body.get("nextCursor").asLong());
+            var nextBody = ApiController.MAPPER.readTree(next.body().string());
+            assertThat(nextBody.get("urls").size()).isEqualTo(1);
+            assertThat(nextBody.get("nextCursor").isNull()).isTrue();
+        });
+    }
+
+    @Test
+    void testShowUrlWithChecks() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url("https://api-show.com");
+            UrlRepository.save(url);
+            UrlCheckRepository.save(new UrlCheck(200, "Api title", "Api h1", "Api description", url.getId()));
+
+            var response = client.get(NamedRoutes.apiUrlPath(url.getId()));
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+
+            var body = ApiController.MAPPER.readTree(response.body().string());
+            assertThat(body.get("url").get("name").asText()).isEqualTo("https://api-show.com");
+            assertThat(body.get("url").get("lastStatusCode").asInt()).isEqualTo(200);
+            assertThat(body.get("checks").size()).isEqualTo(1);
+            assertThat(body.get("checks").get(0).get("title").asText()).isEqualTo("Api title");
+            assertThat(body.get("checks").get(0).get("createdAt").isTextual()).isTrue();
+
+            assertThat(client.get(NamedRoutes.apiUrlPath(999999L)).code())
+                    .isEqualTo(HttpStatus.NOT_FOUND.getCode());
+        });
+    }
+
+    @Test
+    void testTriggerCheck() {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html><head><title>Api check</title></head><body></body></html>")
+                .setResponseCode(HttpStatus.OK.getCode()));
+
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url(mockWebServer.url("/").toString().replaceFirst("/$", ""));
+            UrlRepository.save(url);
+
+            var response = client.post(NamedRoutes.apiUrlChecksPath(url.getId()));
+            assertThat(response.code()).isEqualTo(HttpStatus.ACCEPTED.getCode());
+            var job = ApiController.MAPPER.readTree(response.body().string());
+            assertThat(job.get("urlId").asLong()).isEqualTo(url.getId());
+
+            awaitCheckJobs();
+            var checks = UrlCheckRepository.findByUrlId(url.getId());
+            assertThat(checks.size()).isEqualTo(1);
+            assertThat(checks.get(0).getTitle()).isEqualTo("Api check");
+        });
+    }
+
+    @Test
+    void testExportChecksAsNdjson() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url("https://api-export.com");
+            UrlRepository.save(url);
+            var checks = new ArrayList<UrlCheck>();
+            for (int i = 0; i < 2_500; i++) {
+                checks.add(new UrlCheck(200, "Export " + i, "", "", url.getId()));
+            }
+            UrlCheckRepository.saveAll(checks);
+
+            var response = client.get(NamedRoutes.apiChecksExportPath());
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(response.header("Content-Type")).startsWith(ApiController.NDJSON);
+
+            var lines = response.body().string().split("\n");
+            assertThat(lines.length).isEqualTo(2_500);
+            JsonNode first = ApiController.MAPPER.readTree(lines[0]);
+            JsonNode last = ApiController.MAPPER.readTree(lines[lines.length - 1]);
+            assertThat(first.get("title").asText()).isEqualTo("Export 0");
+            assertThat(last.get("title").asText()).isEqualTo("Export 2499");
+            assertThat(last.get("urlId").asLong()).isEqualTo(url.getId());
+        });
+    }
+
+    @Test
+    void testImportCountsInsertedDuplicateAndInvalidRows() {
+        JavalinTest.test(appTest, (server, client) -> {
+            UrlRepository.save(new Url("https://existing.com"));
+            assertThat(UrlRepository.findByName("https://imported.com")).isEmpty();
+
+            var csv = """
+                    url,comment
+                    https://imported.com/path,first
+                    "HTTPS://Imported.com:443/other",same host
+                    https://existing.com
+                    not a url
+                    mailto:someone@example.com
+
+                    http://second.com:8080
+                    """;
+            var response = client.post(NamedRoutes.apiUrlsImportPath(), csv);
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+
+            var summary = ApiController.MAPPER.readTree(response.body().string());
+            assertThat(summary.get("total").asLong()).isEqualTo(6L);
+            assertThat(summary.get("inserted").asLong()).isEqualTo(2L);
+            assertThat(summary.get("duplicates").asLong()).isEqualTo(2L);
+            assertThat(summary.get("invalid").asLong()).isEqualTo(2L);
+
+            assertThat(UrlRepository.findByName("https://imported.com")).isPresent();
+            assertThat(UrlRepository.findByName("http://second.com:8080")).isPresent();
+        });
+    }
+
+    @Test
+    void testImportLargeUpload() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var body = new StringBuilder();
+            for (int i = 0; i < 12_000; i++) {
+                body.append("https://bulk-").append(i % 10_000).append(".example.com\n");
+            }
+
+            var response = client.post(NamedRoutes.apiUrlsImportPath(), body.toString());
+            var summary = ApiController.MAPPER.readTree(response.body().string());
+            assertThat(summary.get("inserted").asLong()).isEqualTo(10_000L);
+            assertThat(summary.get("duplicates").asLong()).isEqualTo(2_000L);
+            assertThat(UrlRepository.getEntities().size()).isEqualTo(10_000);
+
+            var again = client.post(NamedRoutes.apiUrlsImportPath(), body.toString());
+            var againSummary = ApiController.MAPPER.readTree(again.body().string());
+            assertThat(againSummary.get("inserted").asLong()).isEqualTo(0L);
+            assertThat(againSummary.get("duplicates").asLong()).isEqualTo(12_000L);
+        });
+    }
+
+    @Test
+    void testScheduleReadsIntervalFromBody() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url("https://api-schedule.com");
+            UrlRepository.save(url);
+            var path = NamedRoutes.apiUrlSchedulePath(url.getId());
+
+            var json = client.post(path, Map.of("interval", 15));
+            assertThat(json.code()).isEqualTo(HttpStatus.OK.getCode());
+            var body = ApiController.MAPPER.readTree(json.body().string());
+            assertThat(body.get("checkIntervalSeconds").asInt()).isEqualTo(900);
+
+            var form = client.request(path, builder -> builder.post(new FormBody.Builder()
+                    .add("interval", "60")
+                    .build()));
+            assertThat(form.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isEqualTo(3600);
+
+            assertThat(client.post(path, Map.of()).code()).isEqualTo(HttpStatus.BAD_REQUEST.getCode());
+            assertThat(client.post(path, Map.of("interval", 0)).code()).isEqualTo(HttpStatus.BAD_REQUEST.getCode());
+            assertThat(client.post(path, Map.of("interval", -5)).code()).isEqualTo(HttpStatus.BAD_REQUEST.getCode());
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isEqualTo(3600);
+
+            var disabled = client.delete(path);
+            assertThat(disabled.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isNull();
+        });
+    }
+}
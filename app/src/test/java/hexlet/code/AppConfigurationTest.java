@@ -1,15 +1,22 @@
 package hexlet.code;
 
+import gg.jte.output.StringOutput;
+import hexlet.code.dto.MainPage;
 import hexlet.code.model.Url;
 import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
+import hexlet.code.util.RequestIds;
 import io.javalin.Javalin;
 import io.javalin.http.HttpStatus;
 import io.javalin.testtools.JavalinTest;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
 import java.sql.SQLException;
+import java.util.stream.Collectors;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
@@ -89,10 +96,61 @@ public class AppConfigurationTest extends BaseTest {
 
     @Test
     void testAppReadResourceFile() throws IOException {
-        var content = App.readResourceFile("schema.sql");
+        var content = readResourceFile("db/migration/V1__create_urls_and_url_checks.sql");
         assertThat(content).isNotNull();
         assertThat(content).contains("CREATE TABLE");
         assertThat(content).contains("urls");
         assertThat(content).contains("url_checks");
     }
+
+    private static String readResourceFile(String fileName) throws IOException {
+        var inputStream = App.class.getClassLoader().getResourceAsStream(fileName);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8))) {
+            return reader.lines().collect(Collectors.joining("\n"));
+        }
+    }
+
+    @Test
+    void testPrecompiledAndRuntimeTemplatesRenderTheSame() {
+        var page = new MainPage(null, null);
+
+        var precompiled = new StringOutput();
+        App.createTemplateEngine(false).render("index.jte", page, precompiled);
+        var runtime = new StringOutput();
+        App.createTemplateEngine(true).render("index.jte", page, runtime);
+
+        assertThat(precompiled.toString()).contains("</html>");
+        assertThat(precompiled.toString()).isEqualTo(runtime.toString());
+    }
+
+    @Test
+    void testRequestIdIsEchoedOrGenerated() throws IOException, SQLException {
+        var app = App.getApp();
+
+        JavalinTest.test(app, (server, client) -> {
+            var given = client.get(NamedRoutes.rootPath(), request -> request.header(RequestIds.HEADER, "abc-123"));
+            assertThat(given.header(RequestIds.HEADER)).isEqualTo("abc-123");
+
+            var generated = client.get(NamedRoutes.rootPath());
+            assertThat(generated.header(RequestIds.HEADER)).hasSize(36);
+
+            var unsafe = client.get(NamedRoutes.rootPath(), request -> request.header(RequestIds.HEADER, "a b\"c"));
+            assertThat(unsafe.header(RequestIds.HEADER)).isNotEqualTo("a b\"c");
+        });
+    }
+
+    @Test
+    void testHikariConfigDefaults() throws IOException {
+        var hikariConfig = App.createHikariConfig();
+
+        assertThat(hikariConfig.getJdbcUrl()).startsWith("jdbc:");
+        assertThat(hikariConfig.getPoolName()).isEqualTo("app-pool");
+        assertThat(hikariConfig.getMaximumPoolSize()).isEqualTo(App.DEFAULT_POOL_SIZE);
+        assertThat(hikariConfig.getConnectionTimeout()).isEqualTo(5_000L);
+        if (hikariConfig.getJdbcUrl().startsWith("jdbc:h2:")) {
+            assertThat(hikariConfig.getDataSourceProperties().isEmpty()).isTrue();
+        } else {
+            assertThat(hikariConfig.getDataSourceProperties().getProperty("prepareThreshold")).isNotNull();
+        }
+    }
 }
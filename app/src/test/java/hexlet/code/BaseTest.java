@@ -2,27 +2,45 @@ package hexlet.code;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import hexlet.code.check.BulkCheckEngine;
+import hexlet.code.check.CheckJobQueue;
+import hexlet.code.check.FetchClient;
+import hexlet.code.check.UrlChecker;
+import hexlet.code.controller.ApiController;
 import hexlet.code.controller.RootController;
 import hexlet.code.controller.UrlsController;
 import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
 import io.javalin.Javalin;
+import io.javalin.json.JavalinJackson;
 import io.javalin.rendering.template.JavalinJte;
 import okhttp3.mockwebserver.MockWebServer;
+import org.h2.jdbcx.JdbcDataSource;
 import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 
 import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
 
 import static hexlet.code.App.createTemplateEngine;
-import static hexlet.code.App.readResourceFile;
+import static hexlet.code.App.migrate;
 
 public abstract class BaseTest {
     protected static final String TEST_DB_URL = "jdbc:h2:mem:test;DB_CLOSE_DELAY=-1";
     protected Javalin appTest;
     protected static MockWebServer mockWebServer;
+    private static final Set<String> STATEMENT_METHODS = Set.of("createStatement", "prepareStatement", "prepareCall");
 
     @BeforeAll
     static void setUpAll() throws IOException {
@@ -42,17 +60,23 @@ public abstract class BaseTest {
 
         var dataSource = new HikariDataSource(hikariConfig);
 
-        var sql = readResourceFile("schema.sql");
-        BaseRepository.dataSource = dataSource;
-
         try (var connection = dataSource.getConnection();
              var statement = connection.createStatement()) {
-            statement.execute(sql);
+            statement.execute("DROP ALL OBJECTS");
         }
+        migrate(dataSource);
+        BaseRepository.dataSource = dataSource;
+        BaseRepository.configureReplica(null, BaseRepository.DEFAULT_READ_YOUR_WRITES_WINDOW);
+
+        UrlRepository.configureCache(UrlRepository.DEFAULT_CACHE_SIZE, UrlRepository.DEFAULT_CACHE_TTL);
+        UrlChecker.fetchClient = FetchClient.withDefaults();
+        UrlsController.checkJobQueue = new CheckJobQueue(2, 100, 1);
+        UrlsController.bulkCheckEngine = new BulkCheckEngine(16, 1, 0, 2);
 
         appTest = Javalin.create(config -> {
             config.bundledPlugins.enableDevLogging();
             config.fileRenderer(new JavalinJte(createTemplateEngine()));
+            config.jsonMapper(new JavalinJackson(ApiController.MAPPER, false));
         });
 
         appTest.before(ctx -> {
@@ -62,7 +86,74 @@ public abstract class BaseTest {
         appTest.get(NamedRoutes.rootPath(), RootController::index);
         appTest.get(NamedRoutes.urlsPath(), UrlsController::index);
         appTest.post(NamedRoutes.urlsPath(), UrlsController::create);
+        appTest.post(NamedRoutes.urlsChecksPath(), UrlsController::checkAll);
         appTest.get(NamedRoutes.urlPath("{id}"), UrlsController::show);
         appTest.post(NamedRoutes.urlChecksPath("{id}"), UrlsController::check);
+        appTest.post(NamedRoutes.urlSchedulePath("{id}"), UrlsController::schedule);
+        appTest.post(NamedRoutes.urlScheduleDeletePath("{id}"), UrlsController::unschedule);
+        appTest.get(NamedRoutes.apiUrlsPath(), ApiController::urls);
+        appTest.post(NamedRoutes.apiUrlsImportPath(), ApiController::importUrls);
+        appTest.get(NamedRoutes.apiUrlPath("{id}"), ApiController::show);
+        appTest.post(NamedRoutes.apiUrlChecksPath("{id}"), ApiController::check);
+        appTest.post(NamedRoutes.apiUrlSchedulePath("{id}"), ApiController::schedule);
+        appTest.delete(NamedRoutes.apiUrlSchedulePath("{id}"), ApiController::unschedule);
+        appTest.get(NamedRoutes.apiChecksExportPath(), ApiController::exportChecks);
+    }
+
+    @AfterEach
+    final void tearDown() {
+        UrlsController.checkJobQueue.close();
+        UrlsController.bulkCheckEngine.close();
+        UrlChecker.fetchClient.close();
+    }
+
+    protected static void awaitCheckJobs() throws InterruptedException {
+        if (!UrlsController.checkJobQueue.awaitIdle(Duration.ofSeconds(10))) {
+            throw new AssertionError("Check jobs did not finish in time");
+        }
+    }
+
+    /**
+     * Creates a pool over the test database that counts every statement prepared through it.
+     *
+     * @param statementCounter incremented for every statement created on a pooled connection
+     * @return a pool the caller closes after use
+     */
+    protected static HikariDataSource createCountingDataSource(AtomicInteger statementCounter) {
+        var h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL(TEST_DB_URL);
+
+        var hikariConfig = new HikariConfig();
+        hikariConfig.setDataSource(proxy(DataSource.class, h2DataSource, (target, method, args) -> {
+            var result = invoke(target, method, args);
+            if (result instanceof Connection connection) {
+                return proxy(Connection.class, connection, (conn, connMethod, connArgs) -> {
+                    if (STATEMENT_METHODS.contains(connMethod.getName())) {
+                        statementCounter.incrementAndGet();
+                    }
+                    return invoke(conn, connMethod, connArgs);
+                });
+            }
+            return result;
+        }));
+        return new HikariDataSource(hikariConfig);
+    }
+
+    private interface Interceptor<T> {
+        Object intercept(T target, Method method, Object[] args) throws Throwable;
+    }
+
+    private static <T> T proxy(Class<T> type, T target, Interceptor<T> interceptor) {
+        var instance = Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type},
+                (proxy, method, args) -> interceptor.intercept(target, method, args));
+        return type.cast(instance);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
     }
 }
@@ -0,0 +1,214 @@
+package hexlet.code;
+
+import hexlet.code.check.BulkCheckEngine;
+import hexlet.code.check.TokenBucket;
+import hexlet.code.controller.UrlsController;
+import hexlet.code.model.Url;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.http.HttpStatus;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class BulkCheckEngineTest extends BaseTest {
+
+    private static MockWebServer startSite(String title) throws IOException {
+        var server = new MockWebServer();
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody("<html><head><title>" + title + "</title></head><body><h1>H</h1></body></html>")
+                        .setResponseCode(HttpStatus.OK.getCode());
+            }
+        });
+        server.start();
+        return server;
+    }
+
+    private static List<MockWebServer> startSites(int count) throws IOException, SQLException {
+        var sites = new ArrayList<MockWebServer>();
+        for (int i = 0; i < count; i++) {
+            var site = startSite("Site " + i);
+            sites.add(site);
+            UrlRepository.save(new Url(site.url("/").toString().replaceFirst("/$", "")));
+        }
+        return sites;
+    }
+
+    private static void shutdown(List<MockWebServer> sites) throws IOException {
+        for (var site : sites) {
+            site.shutdown();
+        }
+    }
+
+    @Test
+    void testRunAllChecksEveryUrl() throws Exception {
+        var sites = startSites(5);
+        try (var engine = new BulkCheckEngine(4, 1, 0, 2)) {
+            var report = engine.runAll().orElseThrow();
+
+            assertThat(report.getChecked()).isEqualTo(5);
+            assertThat(report.getFailed()).isEqualTo(0);
+            assertThat(report.getUrlsPerSecond()).isGreaterThan(0);
+            assertThat(engine.getLastReport()).isPresent();
+
+            for (var url : UrlRepository.getEntities()) {
+                var checks = UrlCheckRepository.findByUrlId(url.getId());
+                assertThat(checks.size()).isEqualTo(1);
+                assertThat(checks.get(0).getTitle()).startsWith("Site ");
+                assertThat(checks.get(0).getId()).isNotNull();
+            }
+        } finally {
+            shutdown(sites);
+        }
+    }
+
+    @Test
+    void testRunAllCountsUnreachableHosts() throws Exception {
+        var sites = startSites(1);
+        var unreachable = startSite("Gone");
+        UrlRepository.save(new Url(unreachable.url("/").toString().replaceFirst("/$", "")));
+        unreachable.shutdown();
+
+        try (var engine = new BulkCheckEngine(4, 1, 0, 10)) {
+            var report = engine.runAll().orElseThrow();
+            assertThat(report.getChecked()).isEqualTo(1);
+            assertThat(report.getFailed()).isEqualTo(1);
+        } finally {
+            shutdown(sites);
+        }
+    }
+
+    @Test
+    void testCheckAllEndpointStartsRun() throws Exception {
+        var sites = startSites(2);
+        try {
+            JavalinTest.test(appTest, (server, client) -> {
+                var response = client.post(NamedRoutes.urlsChecksPath());
+                assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+                assertThat(response.body().string()).contains("Проверка всех сайтов");
+
+                var deadline = System.currentTimeMillis() + 10_000;
+                var engine = UrlsController.bulkCheckEngine;
+                while (engine.getLastReport().isEmpty() && System.currentTimeMillis() < deadline) {
+                    Thread.sleep(20);
+                }
+                assertThat(engine.getLastReport().orElseThrow().getChecked()).isEqualTo(2);
+            });
+        } finally {
+            shutdown(sites);
+        }
+    }
+
+    @Test
+    void testConcurrentStartsRunOnce() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html></html>")
+                .setBodyDelay(1, TimeUnit.SECONDS)
+                .setResponseCode(HttpStatus.OK.getCode()));
+        UrlRepository.save(new Url(mockWebServer.url("/").toString().replaceFirst("/$", "")));
+
+        try (var engine = new BulkCheckEngine(4, 1, 0, 2)) {
+            var threads = 16;
+            var executor = Executors.newFixedThreadPool(threads);
+            try {
+                var start = new CountDownLatch(1);
+                var results = new ArrayList<Future<Boolean>>();
+                for (int i = 0; i < threads; i++) {
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return engine.startAsync();
+                    }));
+                }
+                start.countDown();
+                var started = 0;
+                for (var result : results) {
+                    if (result.get(10, TimeUnit.SECONDS)) {
+                        started++;
+                    }
+                }
+                assertThat(started).isEqualTo(1);
+            } finally {
+                executor.shutdownNow();
+            }
+
+            var deadline = System.currentTimeMillis() + 10_000;
+            while (engine.isRunning() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertThat(engine.isRunning()).isFalse();
+            assertThat(engine.getLastReport().orElseThrow().getChecked()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testPerHostLimitSpansPortsOfOneHost() throws Exception {
+        var inFlight = new AtomicInteger();
+        var maxInFlight = new AtomicInteger();
+        var sites = new ArrayList<MockWebServer>();
+        for (int i = 0; i < 3; i++) {
+            var site = new MockWebServer();
+            site.setDispatcher(new Dispatcher() {
+                @Override
+                public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+                    maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                    Thread.sleep(100);
+                    inFlight.decrementAndGet();
+                    return new MockResponse().setBody("<html></html>").setResponseCode(HttpStatus.OK.getCode());
+                }
+            });
+            site.start();
+            sites.add(site);
+            UrlRepository.save(new Url(site.url("/").toString().replaceFirst("/$", "")));
+        }
+
+        try (var engine = new BulkCheckEngine(8, 1, 0, 10)) {
+            assertThat(engine.runAll().orElseThrow().getChecked()).isEqualTo(3);
+            assertThat(maxInFlight.get()).isEqualTo(1);
+        } finally {
+            shutdown(sites);
+        }
+    }
+
+    @Test
+    void testRunAllCountsUnexpectedErrorsAsFailed() throws Exception {
+        var sites = startSites(1);
+        UrlRepository.save(new Url("http://not a host"));
+        try (var engine = new BulkCheckEngine(4, 1, 0, 10)) {
+            var report = engine.runAll().orElseThrow();
+            assertThat(report.getChecked()).isEqualTo(1);
+            assertThat(report.getFailed()).isEqualTo(1);
+        } finally {
+            shutdown(sites);
+        }
+    }
+
+    @Test
+    void testTokenBucketLimitsRate() throws InterruptedException {
+        var bucket = new TokenBucket(20, 1);
+        var startedAt = System.nanoTime();
+        for (int i = 0; i < 6; i++) {
+            bucket.acquire();
+        }
+        var elapsedMillis = (System.nanoTime() - startedAt) / 1_000_000;
+        assertThat(elapsedMillis).isGreaterThanOrEqualTo(200L);
+    }
+}
@@ -0,0 +1,180 @@
+package hexlet.code;
+
+import hexlet.code.check.CheckJob;
+import hexlet.code.check.CheckJobQueue;
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.http.HttpStatus;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class CheckJobQueueTest extends BaseTest {
+
+    private static Url saveMockUrl() throws SQLException {
+        var url = new Url(mockWebServer.url("/").toString().replaceFirst("/$", ""));
+        UrlRepository.save(url);
+        return url;
+    }
+
+    @Test
+    void testShowPageReportsActiveJob() throws SQLException {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html><head><title>Slow</title></head></html>")
+                .setBodyDelay(1, TimeUnit.SECONDS)
+                .setResponseCode(HttpStatus.OK.getCode()));
+        var url = saveMockUrl();
+
+        JavalinTest.test(appTest, (server, client) -> {
+            var response = client.post(NamedRoutes.urlChecksPath(url.getId()));
+            var body = response.body().string();
+            assertThat(body).contains("Проверка поставлена в очередь");
+            assertThat(body.contains("Проверка ожидает в очереди") || body.contains("Проверка выполняется"))
+                    .isTrue();
+            assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(0);
+
+            awaitCheckJobs();
+
+            assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(1);
+            var showBody = client.get(NamedRoutes.urlPath(url.getId())).body().string();
+            assertThat(showBody)
+                    .contains("Slow")
+                    .doesNotContain("Проверка выполняется");
+        });
+    }
+
+    @Test
+    void testQueueRejectsJobsBeyondCapacity() throws SQLException, InterruptedException {
+        for (int i = 0; i < 2; i++) {
+            mockWebServer.enqueue(new MockResponse()
+                    .setBody("<html></html>")
+                    .setBodyDelay(500, TimeUnit.MILLISECONDS)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+        }
+        var url = saveMockUrl();
+
+        try (var queue = new CheckJobQueue(1, 1, 1)) {
+            var running = queue.submit(url);
+            var queued = queue.submit(url);
+            var rejected = queue.submit(url);
+
+            assertThat(running).isPresent();
+            assertThat(queued).isPresent();
+            assertThat(rejected).isEmpty();
+            assertThat(queue.findLatest(url.getId()).map(CheckJob::getId)).contains(queued.get().getId());
+
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            assertThat(queued.get().getStatus()).isEqualTo(CheckJob.Status.DONE);
+        }
+        assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(2);
+    }
+
+    @Test
+    void testBusyHostDoesNotHoldWorkers() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            mockWebServer.enqueue(new MockResponse()
+                    .setBody("<html></html>")
+                    .setBodyDelay(1, TimeUnit.SECONDS)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+        }
+        var slowUrl = saveMockUrl();
+        var fastSite = new MockWebServer();
+        fastSite.enqueue(new MockResponse().setBody("<html></html>").setResponseCode(HttpStatus.OK.getCode()));
+        fastSite.start();
+        var fastUrl = new Url("http://127.0.0.1:" + fastSite.getPort());
+        UrlRepository.save(fastUrl);
+
+        try (var queue = new CheckJobQueue(2, 10, 1)) {
+            var first = queue.submit(slowUrl).orElseThrow();
+            var second = queue.submit(slowUrl).orElseThrow();
+            var fast = queue.submit(fastUrl).orElseThrow();
+
+            var deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+            while (fast.isActive() && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(fast.getStatus()).isEqualTo(CheckJob.Status.DONE);
+            assertThat(first.isActive()).isTrue();
+            assertThat(second.getStatus()).isEqualTo(CheckJob.Status.PENDING);
+
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            assertThat(second.getStatus()).isEqualTo(CheckJob.Status.DONE);
+        } finally {
+            fastSite.shutdown();
+        }
+    }
+
+    @Test
+    void testUnexpectedErrorFailsJob() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("<html></html>").setResponseCode(HttpStatus.OK.getCode()));
+        var url = saveMockUrl();
+        var dataSource = BaseRepository.dataSource;
+        BaseRepository.dataSource = null;
+        try (var queue = new CheckJobQueue(1, 1, 1)) {
+            var job = queue.submit(url).orElseThrow();
+
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            assertThat(job.getStatus()).isEqualTo(CheckJob.Status.FAILED);
+            assertThat(queue.findLatest(url.getId()).map(CheckJob::isActive)).contains(false);
+        } finally {
+            BaseRepository.dataSource = dataSource;
+        }
+    }
+
+    @Test
+    void testPortsOfOneHostShareItsLimit() throws Exception {
+        var otherPort = new MockWebServer();
+        otherPort.enqueue(new MockResponse().setBody("<html></html>").setResponseCode(HttpStatus.OK.getCode()));
+        otherPort.start();
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html></html>")
+                .setBodyDelay(500, TimeUnit.MILLISECONDS)
+                .setResponseCode(HttpStatus.OK.getCode()));
+        var slowUrl = saveMockUrl();
+        var otherUrl = new Url(otherPort.url("/").toString().replaceFirst("/$", ""));
+        UrlRepository.save(otherUrl);
+
+        try (var queue = new CheckJobQueue(2, 10, 1)) {
+            var slow = queue.submit(slowUrl).orElseThrow();
+            var other = queue.submit(otherUrl).orElseThrow();
+
+            Thread.sleep(200);
+            assertThat(slow.getStatus()).isEqualTo(CheckJob.Status.RUNNING);
+            assertThat(other.getStatus()).isEqualTo(CheckJob.Status.PENDING);
+            assertThat(queue.getQueueDepth()).isEqualTo(1);
+
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            assertThat(other.getStatus()).isEqualTo(CheckJob.Status.DONE);
+        } finally {
+            otherPort.shutdown();
+        }
+    }
+
+    @Test
+    void testFinishedJobsAreForgottenAfterTtl() throws Exception {
+        mockWebServer.enqueue(new MockResponse().setBody("<html></html>").setResponseCode(HttpStatus.OK.getCode()));
+        var url = saveMockUrl();
+        var dataSource = BaseRepository.dataSource;
+        BaseRepository.dataSource = null;
+        try (var queue = new CheckJobQueue(1, 10, 1, Duration.ofMillis(100))) {
+            queue.submit(url).orElseThrow();
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            assertThat(queue.findLatest(url.getId()).map(CheckJob::getStatus)).contains(CheckJob.Status.FAILED);
+
+            Thread.sleep(200);
+            assertThat(queue.findLatest(url.getId())).isEmpty();
+        } finally {
+            BaseRepository.dataSource = dataSource;
+        }
+    }
+}
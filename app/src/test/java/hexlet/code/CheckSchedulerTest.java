@@ -0,0 +1,301 @@
+package hexlet.code;
+
+import hexlet.code.check.CheckJob;
+import hexlet.code.check.CheckJobQueue;
+import hexlet.code.check.CheckScheduler;
+import hexlet.code.controller.UrlsController;
+import hexlet.code.model.Url;
+import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.JobLeaseRepository;
+import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlRepository;
+import hexlet.code.util.NamedRoutes;
+import io.javalin.http.HttpStatus;
+import io.javalin.testtools.HttpClient;
+import io.javalin.testtools.JavalinTest;
+import okhttp3.FormBody;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.Test;
+
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class CheckSchedulerTest extends BaseTest {
+    private static final Duration LEASE = Duration.ofMinutes(1);
+
+    private static void makeDue(Long id) throws SQLException {
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.prepareStatement("UPDATE urls SET next_check_at = ? WHERE id = ?")) {
+            stmt.setTimestamp(1, Timestamp.valueOf(LocalDateTime.now().minusMinutes(1)));
+            stmt.setLong(2, id);
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    void testFirstCheckIsSpreadOverTheInterval() throws SQLException {
+        var before = LocalDateTime.now();
+        for (int i = 0; i < 20; i++) {
+            var url = new Url("https://spread-" + i + ".com");
+            UrlRepository.save(url);
+            UrlRepository.setCheckInterval(url.getId(), Duration.ofHours(1));
+        }
+
+        var nextChecks = UrlRepository.getEntities().stream().map(Url::getNextCheckAt).distinct().count();
+        assertThat(nextChecks).isGreaterThan(1L);
+        for (var url : UrlRepository.getEntities()) {
+            assertThat(url.getCheckIntervalSeconds()).isEqualTo(3600);
+            assertThat(url.getNextCheckAt()).isAfterOrEqualTo(before);
+            assertThat(url.getNextCheckAt()).isBefore(LocalDateTime.now().plusHours(1));
+        }
+    }
+
+    @Test
+    void testClaimDueLeasesEachDueUrlToOneNode() throws SQLException {
+        var due = new Url("https://due.com");
+        UrlRepository.save(due);
+        UrlRepository.setCheckInterval(due.getId(), Duration.ofMinutes(10));
+        makeDue(due.getId());
+        var unscheduled = new Url("https://unscheduled.com");
+        UrlRepository.save(unscheduled);
+
+        var now = LocalDateTime.now();
+        var claimed = UrlRepository.claimDue("node-a", now, 10, LEASE);
+        assertThat(claimed.size()).isEqualTo(1);
+        assertThat(claimed.get(0).getName()).isEqualTo("https://due.com");
+        assertThat(UrlRepository.claimDue("node-b", now, 10, LEASE).size()).isEqualTo(0);
+
+        assertThat(UrlRepository.completeCheck(claimed.get(0), "node-b")).isFalse();
+        assertThat(UrlRepository.completeCheck(claimed.get(0), "node-a")).isTrue();
+        var next = UrlRepository.find(due.getId()).orElseThrow().getNextCheckAt();
+        assertThat(next).isAfter(now.plusMinutes(8));
+        assertThat(next).isBefore(now.plusMinutes(12));
+        assertThat(UrlRepository.claimDue("node-b", now, 10, LEASE).size()).isEqualTo(0);
+
+        UrlRepository.setCheckInterval(due.getId(), null);
+        var stored = UrlRepository.find(due.getId()).orElseThrow();
+        assertThat(stored.getCheckIntervalSeconds()).isNull();
+        assertThat(stored.getNextCheckAt()).isNull();
+    }
+
+    @Test
+    void testExpiredLeaseIsTakenOver() throws SQLException {
+        var url = new Url("https://abandoned.com");
+        UrlRepository.save(url);
+        UrlRepository.setCheckInterval(url.getId(), Duration.ofMinutes(10));
+        makeDue(url.getId());
+
+        var now = LocalDateTime.now();
+        assertThat(UrlRepository.claimDue("node-a", now, 10, LEASE).size()).isEqualTo(1);
+        var takenOver = UrlRepository.claimDue("node-b", now.plus(LEASE).plusSeconds(1), 10, LEASE);
+        assertThat(takenOver.size()).isEqualTo(1);
+
+        assertThat(UrlRepository.completeCheck(takenOver.get(0), "node-a")).isFalse();
+        assertThat(UrlRepository.completeCheck(takenOver.get(0), "node-b")).isTrue();
+    }
+
+    @Test
+    void testSchedulerQueuesDueChecks() throws Exception {
+        mockWebServer.enqueue(new MockResponse()
+                .setBody("<html><head><title>Scheduled</title></head><body></body></html>")
+                .setResponseCode(HttpStatus.OK.getCode()));
+        var url = new Url(mockWebServer.url("/").toString().replaceFirst("/$", ""));
+        UrlRepository.save(url);
+        UrlRepository.setCheckInterval(url.getId(), Duration.ofMinutes(5));
+        makeDue(url.getId());
+
+        try (var scheduler = new CheckScheduler(UrlsController.checkJobQueue, "node-a", 10, LEASE)) {
+            assertThat(scheduler.dispatchDue()).isEqualTo(1);
+            awaitCheckJobs();
+            assertThat(scheduler.dispatchDue()).isEqualTo(0);
+        }
+
+        var checks = UrlCheckRepository.findByUrlId(url.getId());
+        assertThat(checks.size()).isEqualTo(1);
+        assertThat(checks.get(0).getTitle()).isEqualTo("Scheduled");
+        var stored = UrlRepository.find(url.getId()).orElseThrow();
+        assertThat(stored.getNextCheckAt()).isAfter(LocalDateTime.now().plusMinutes(4));
+    }
+
+    @Test
+    void testNodesSharingDatabaseCheckEachUrlOnce() throws Exception {
+        var site = new MockWebServer();
+        site.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                return new MockResponse()
+                        .setBody("<html><head><title>Shared</title></head><body></body></html>")
+                        .setResponseCode(HttpStatus.OK.getCode());
+            }
+        });
+        site.start();
+        var urls = new ArrayList<Url>();
+        for (int i = 0; i < 40; i++) {
+            var url = new Url(site.url("/page-" + i).toString());
+            UrlRepository.save(url);
+            UrlRepository.setCheckInterval(url.getId(), Duration.ofMinutes(10));
+            makeDue(url.getId());
+            urls.add(url);
+        }
+
+        var queues = List.of(new CheckJobQueue(4, 100, 1), new CheckJobQueue(4, 100, 1));
+        var schedulers = List.of(new CheckScheduler(queues.get(0), "node-a", 5, LEASE),
+                new CheckScheduler(queues.get(1), "node-b", 5, LEASE));
+        var executor = Executors.newFixedThreadPool(schedulers.size());
+        try {
+            var start = new CountDownLatch(1);
+            var results = new ArrayList<Future<Integer>>();
+            for (var scheduler : schedulers) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return scheduler.dispatchDue();
+                }));
+            }
+            start.countDown();
+            var dispatched = 0;
+            for (var result : results) {
+                dispatched += result.get(10, TimeUnit.SECONDS);
+            }
+            for (var queue : queues) {
+                assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+            }
+
+            assertThat(dispatched).isEqualTo(40);
+            assertThat(site.getRequestCount()).isEqualTo(40);
+            for (var url : urls) {
+                assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(1);
+            }
+        } finally {
+            executor.shutdownNow();
+            schedulers.forEach(CheckScheduler::close);
+            queues.forEach(CheckJobQueue::close);
+            site.shutdown();
+        }
+    }
+
+    @Test
+    void testJobLeaseIsHeldByOneNode() throws SQLException {
+        assertThat(JobLeaseRepository.tryAcquire("bulk-check", "node-a", LEASE)).isTrue();
+        assertThat(JobLeaseRepository.tryAcquire("bulk-check", "node-b", LEASE)).isFalse();
+        assertThat(JobLeaseRepository.tryAcquire("bulk-check", "node-a", Duration.ZERO)).isTrue();
+        assertThat(JobLeaseRepository.tryAcquire("bulk-check", "node-b", LEASE)).isTrue();
+        assertThat(JobLeaseRepository.tryAcquire("bulk-check", "node-a", LEASE)).isFalse();
+    }
+
+    @Test
+    void testJobLeaseIsRenewedWhileTheJobRuns() throws Exception {
+        var lease = Duration.ofMillis(300);
+        var timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            var takenOver = new ArrayList<Boolean>();
+            var ran = JobLeaseRepository.runLeased("bulk-check", "node-a", lease, timer, () -> {
+                try {
+                    Thread.sleep(lease.toMillis() * 3);
+                    takenOver.add(JobLeaseRepository.tryAcquire("bulk-check", "node-b", lease));
+                } catch (InterruptedException | SQLException e) {
+                    throw new IllegalStateException(e);
+                }
+            });
+            assertThat(ran).isTrue();
+            assertThat(takenOver.get(0)).isFalse();
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    @Test
+    void testQueuedCheckIsSkippedOnceItsLeasePassedToAnotherNode() throws Exception {
+        var slowSite = new MockWebServer();
+        slowSite.enqueue(new MockResponse()
+                .setBody("<html><head><title>Slow</title></head><body></body></html>")
+                .setBodyDelay(500, TimeUnit.MILLISECONDS)
+                .setResponseCode(HttpStatus.OK.getCode()));
+        slowSite.start();
+        var slow = new Url(slowSite.url("/").toString().replaceFirst("/$", ""));
+        UrlRepository.save(slow);
+        var url = new Url(mockWebServer.url("/leased").toString());
+        UrlRepository.save(url);
+        UrlRepository.setCheckInterval(url.getId(), Duration.ofMinutes(10));
+        makeDue(url.getId());
+        var requestsBefore = mockWebServer.getRequestCount();
+
+        var queue = new CheckJobQueue(1, 10, 1);
+        try (var scheduler = new CheckScheduler(queue, "node-a", 10, LEASE)) {
+            assertThat(queue.submit(slow)).isPresent();
+            assertThat(scheduler.dispatchDue()).isEqualTo(1);
+            var job = queue.findLatest(url.getId()).orElseThrow();
+
+            var takenOver = UrlRepository.claimDue("node-b", LocalDateTime.now().plus(LEASE).plusSeconds(1), 10,
+                    LEASE);
+            assertThat(takenOver.size()).isEqualTo(1);
+            assertThat(queue.awaitIdle(Duration.ofSeconds(10))).isTrue();
+
+            assertThat(job.getStatus()).isEqualTo(CheckJob.Status.SKIPPED);
+            assertThat(mockWebServer.getRequestCount()).isEqualTo(requestsBefore);
+            assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(0);
+            assertThat(UrlRepository.completeCheck(takenOver.get(0), "node-b")).isTrue();
+        } finally {
+            queue.close();
+            slowSite.shutdown();
+        }
+    }
+
+    @Test
+    void testScheduleFormSetsInterval() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url("https://schedule-form.com");
+            UrlRepository.save(url);
+
+            var response = postForm(client, NamedRoutes.urlSchedulePath(url.getId()), "15");
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(response.body().string()).contains("каждые 15 мин.");
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isEqualTo(900);
+
+            for (var invalid : new String[]{"-5", "0", "abc"}) {
+                assertThat(postForm(client, NamedRoutes.urlSchedulePath(url.getId()), invalid).code())
+                        .isEqualTo(HttpStatus.BAD_REQUEST.getCode());
+            }
+            var missing = client.request(NamedRoutes.urlSchedulePath(url.getId()),
+                    builder -> builder.post(new FormBody.Builder().build()));
+            assertThat(missing.code()).isEqualTo(HttpStatus.BAD_REQUEST.getCode());
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isEqualTo(900);
+
+            var disabled = client.post(NamedRoutes.urlScheduleDeletePath(url.getId()));
+            assertThat(disabled.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(UrlRepository.find(url.getId()).orElseThrow().getCheckIntervalSeconds()).isNull();
+        });
+    }
+
+    @Test
+    void testScheduleFormKeepsIntervalThatIsNotAPreset() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var url = new Url("https://schedule-custom.com");
+            UrlRepository.save(url);
+            UrlRepository.setCheckInterval(url.getId(), Duration.ofMinutes(45));
+
+            var body = client.get(NamedRoutes.urlPath(url.getId())).body().string();
+            assertThat(body).contains("<option value=\"45\" selected>Каждые 45 мин.</option>");
+            assertThat(body).contains("<option value=\"15\">Каждые 15 мин.</option>");
+        });
+    }
+
+    private static Response postForm(HttpClient client, String path, String interval) {
+        return client.request(path, builder -> builder.post(new FormBody.Builder()
+                .add(UrlsController.INTERVAL_PARAM, interval)
+                .build()));
+    }
+}
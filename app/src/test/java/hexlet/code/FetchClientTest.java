@@ -0,0 +1,100 @@
+package hexlet.code;
+
+import hexlet.code.check.FetchClient;
+import hexlet.code.check.UrlChecker;
+import hexlet.code.model.Url;
+import io.javalin.http.HttpStatus;
+import kong.unirest.core.UnirestException;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class FetchClientTest {
+
+    private static FetchClient createClient(Duration readTimeout, Duration totalTimeout) {
+        return new FetchClient(Duration.ofSeconds(1), readTimeout, totalTimeout, HttpClient.Version.HTTP_1_1);
+    }
+
+    @Test
+    void testReusesConnectionToSameHost() throws Exception {
+        try (var server = new MockWebServer();
+             var client = createClient(Duration.ofSeconds(1), Duration.ofSeconds(5))) {
+            server.enqueue(new MockResponse().setBody("first").setResponseCode(HttpStatus.OK.getCode()));
+            server.enqueue(new MockResponse().setBody("second").setResponseCode(HttpStatus.OK.getCode()));
+            server.start();
+
+            assertThat(client.get(server.url("/").toString()).asString().getBody()).isEqualTo("first");
+            assertThat(client.get(server.url("/").toString()).asString().getBody()).isEqualTo("second");
+
+            assertThat(server.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber()).isEqualTo(0);
+            assertThat(server.takeRequest(1, TimeUnit.SECONDS).getSequenceNumber()).isEqualTo(1);
+        }
+    }
+
+    @Test
+    void testReadTimeoutFailsSlowResponse() throws IOException {
+        try (var server = new MockWebServer();
+             var client = createClient(Duration.ofMillis(200), Duration.ofSeconds(5))) {
+            server.enqueue(new MockResponse()
+                    .setHeadersDelay(2, TimeUnit.SECONDS)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+            server.start();
+
+            assertThatThrownBy(() -> client.get(server.url("/").toString()).asString())
+                    .isInstanceOf(UnirestException.class);
+        }
+    }
+
+    @Test
+    void testTotalTimeoutFailsTricklingBody() throws IOException {
+        var defaultClient = UrlChecker.fetchClient;
+        try (var server = new MockWebServer();
+             var client = createClient(Duration.ofSeconds(1), Duration.ofMillis(300))) {
+            server.enqueue(new MockResponse()
+                    .setBody("<html><body>" + "<p>slow</p>".repeat(200) + "</body></html>")
+                    .throttleBody(64, 100, TimeUnit.MILLISECONDS)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+            server.start();
+            UrlChecker.fetchClient = client;
+
+            var url = new Url(server.url("/").toString());
+            assertThatThrownBy(() -> UrlChecker.check(url))
+                    .isInstanceOf(UnirestException.class)
+                    .hasMessageContaining("deadline");
+        } finally {
+            UrlChecker.fetchClient = defaultClient;
+        }
+    }
+
+    @Test
+    void testTotalTimeoutFailsStalledBody() throws IOException {
+        var defaultClient = UrlChecker.fetchClient;
+        try (var server = new MockWebServer();
+             var client = createClient(Duration.ofSeconds(1), Duration.ofMillis(300))) {
+            server.enqueue(new MockResponse()
+                    .setBody("<html><head><title>Stalled</title></head></html>")
+                    .setBodyDelay(10, TimeUnit.SECONDS)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+            server.start();
+            UrlChecker.fetchClient = client;
+
+            var url = new Url(server.url("/").toString());
+            var startedAt = System.nanoTime();
+            assertThatThrownBy(() -> UrlChecker.check(url))
+                    .isInstanceOf(UnirestException.class)
+                    .hasMessageContaining("deadline");
+            assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofSeconds(3));
+            assertThat(Thread.currentThread().isInterrupted()).isFalse();
+        } finally {
+            UrlChecker.fetchClient = defaultClient;
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package hexlet.code;
+
+import hexlet.code.check.HeadExtractor;
+import hexlet.code.check.PageSummary;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Element;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class HeadExtractorTest {
+
+    private static PageSummary jsoupSummary(String html) {
+        var doc = Jsoup.parse(html);
+        Element title = doc.selectFirst("title");
+        Element h1 = doc.selectFirst("h1");
+        Element description = doc.selectFirst("meta[name=description]");
+        return new PageSummary(
+                title == null ? "" : title.text().trim(),
+                h1 == null ? "" : h1.text().trim(),
+                description == null ? "" : description.attr("content").trim());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {
+        "<html><head><title>Plain</title><meta name=\"description\" content=\"Desc\"></head>"
+            + "<body><h1>Header</h1></body></html>",
+        "<title>  Spaced \n\t title  </title><h1>\n  Multi\n  line  </h1>",
+        "<title>Fish &amp; Chips &lt;3 &copy;</title><meta name=description content='Quotes &quot;here&quot;'>",
+        "<head><script>var s = '<title>fake</title><h1>fake</h1>';</script><title>Real</title></head>"
+            + "<body><h1>Real header</h1></body>",
+        "<style>h1 { content: '<h1>styled</h1>'; }</style><h1>After style</h1>",
+        "<!-- <title>commented</title> <h1>commented</h1> --><title>Visible</title><h1>Visible h1</h1>",
+        "<TITLE>Upper</TITLE><META NAME=\"Description\" CONTENT=\"Upper desc\"><H1>Upper h1</H1>",
+        "<h1>Hello <span>nested <b>world</b></span>!</h1>",
+        "<h1>Line<br>break</h1>",
+        "<h1>First</h1><h1>Second</h1><title>Late title</title>",
+        "<meta content=\"Content first\" name=\"description\"><title>T</title>",
+        "<meta name=\"keywords\" content=\"k\"><meta name=\"description\" content=\"  padded  \">",
+        "<title>Raw <b>markup</b> in title</title>",
+        "<h1>a < b and c > d</h1>",
+        "<!DOCTYPE html><?xml version=\"1.0\"?><title>Prolog</title>",
+        "<h1>Unclosed heading<h2>Next</h2>",
+        "<h1>Numeric &#x41;&#66; refs</h1>",
+        "<script>if (a </scriptx> b) {}</script><title>Tricky script end</title>",
+        "<p>No SEO tags at all</p>",
+        ""
+    })
+    void testMatchesJsoupSelection(String html) throws IOException {
+        var expected = jsoupSummary(html);
+        var actual = HeadExtractor.extract(new StringReader(html));
+
+        assertThat(actual.getTitle()).isEqualTo(expected.getTitle());
+        assertThat(actual.getH1()).isEqualTo(expected.getH1());
+        assertThat(actual.getDescription()).isEqualTo(expected.getDescription());
+    }
+
+    @Test
+    void testDecodesStreamWithCharset() throws IOException {
+        var html = "<title>Страница</title><h1>Заголовок 𝕌</h1>";
+        var body = new ByteArrayInputStream(html.getBytes(StandardCharsets.UTF_8));
+
+        var summary = HeadExtractor.extract(body, StandardCharsets.UTF_8, 1024);
+
+        assertThat(summary.getTitle()).isEqualTo("Страница");
+        assertThat(summary.getH1()).isEqualTo("Заголовок 𝕌");
+    }
+
+    @Test
+    void testStopsReadingOnceAllFieldsAreFound() throws IOException {
+        var head = "<title>T</title><meta name=\"description\" content=\"D\"><h1>H</h1>";
+        var body = new CountingInputStream(head + "<p>filler</p>".repeat(100_000));
+
+        var summary = HeadExtractor.extract(body, StandardCharsets.UTF_8, Long.MAX_VALUE);
+
+        assertThat(summary.getH1()).isEqualTo("H");
+        assertThat(body.bytesRead).isLessThan(64 * 1024L);
+    }
+
+    @Test
+    void testStopsAtByteCap() throws IOException {
+        var body = new CountingInputStream("<p>filler</p>".repeat(100_000) + "<title>Too late</title>");
+
+        var summary = HeadExtractor.extract(body, StandardCharsets.UTF_8, 10_000);
+
+        assertThat(summary.getTitle()).isEmpty();
+        assertThat(body.bytesRead).isLessThanOrEqualTo(10_000L);
+    }
+
+    private static final class CountingInputStream extends InputStream {
+        private final byte[] data;
+        private int position;
+        private long bytesRead;
+
+        CountingInputStream(String content) {
+            this.data = content.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int read() {
+            if (position >= data.length) {
+                return -1;
+            }
+            bytesRead++;
+            return data[position++] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= data.length) {
+                return -1;
+            }
+            var count = Math.min(len, data.length - position);
+            System.arraycopy(data, position, b, off, count);
+            position += count;
+            bytesRead += count;
+            return count;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package hexlet.code;
+
+import hexlet.code.check.CheckMetrics;
+import hexlet.code.check.UrlChecker;
+import hexlet.code.model.Url;
+import hexlet.code.util.NamedRoutes;
+import io.micrometer.core.instrument.Counter;
+import io.javalin.http.HttpStatus;
+import io.javalin.testtools.JavalinTest;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+import okhttp3.mockwebserver.MockResponse;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+public class MetricsTest extends BaseTest {
+
+    @Test
+    void testMetricsEndpointExposesRequestsPoolAndCache() throws IOException, SQLException {
+        var app = App.getApp();
+
+        JavalinTest.test(app, (server, client) -> {
+            assertThat(client.get(NamedRoutes.urlsPath()).code()).isEqualTo(HttpStatus.OK.getCode());
+            client.get(NamedRoutes.urlPath(999999L));
+
+            var response = client.get(NamedRoutes.metricsPath());
+            assertThat(response.code()).isEqualTo(HttpStatus.OK.getCode());
+            assertThat(response.header("Content-Type")).startsWith("text/plain");
+
+            var body = response.body().string();
+            assertThat(body).contains("http_server_requests_seconds_bucket");
+            assertThat(body).contains("route=\"/urls\"");
+            assertThat(body).contains("route=\"/urls/{id}\"");
+            assertThat(body).contains("status=\"404\"");
+            assertThat(body).contains("hikaricp_connections_acquire_seconds");
+            assertThat(body).contains("hikaricp_connections_active");
+            assertThat(body).contains("url_cache_hits_total");
+        });
+    }
+
+    @Test
+    void testCheckOutcomesAreCounted() {
+        var registry = new PrometheusMeterRegistry(PrometheusConfig.DEFAULT);
+        var previousMetrics = UrlChecker.metrics;
+        UrlChecker.metrics = new CheckMetrics(registry);
+        var registered = registry.get("url.checks").counters().size();
+        try {
+            mockWebServer.enqueue(new MockResponse()
+                    .setBody("<html><head><title>Metrics</title></head><body></body></html>")
+                    .setResponseCode(HttpStatus.OK.getCode()));
+            var url = new Url(mockWebServer.url("/").toString());
+            url.setId(1L);
+            UrlChecker.check(url);
+            mockWebServer.enqueue(new MockResponse().setBody("<html></html>").setResponseCode(418));
+            UrlChecker.check(url);
+
+            var unreachable = new Url("http://localhost:1");
+            unreachable.setId(2L);
+            try {
+                UrlChecker.check(unreachable);
+            } catch (RuntimeException e) {
+                // counted as an error below
+            }
+
+            assertThat(registry.get("url.checks").tags("status", "200", "error", "none").counter().count())
+                    .isEqualTo(1.0);
+            var errors = registry.get("url.checks").tags("status", "none").counters().stream()
+                    .mapToDouble(Counter::count)
+                    .sum();
+            assertThat(errors).isEqualTo(1.0);
+            assertThat(registry.get("url.checks").counters().size()).isEqualTo(registered);
+            assertThat(registry.get("url.checks").tags("status", "4xx").counter().count()).isEqualTo(1.0);
+            assertThat(registry.get("url.check.fetch").timer().count()).isEqualTo(2L);
+            assertThat(registry.get("url.check.parse").timer().count()).isEqualTo(2L);
+            assertThat(registry.get("url.check.bytes").summary().totalAmount()).isGreaterThan(0.0);
+        } finally {
+            UrlChecker.metrics = previousMetrics;
+        }
+    }
+}
@@ -1,16 +1,36 @@
 package hexlet.code;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
 import hexlet.code.model.Url;
 import hexlet.code.model.UrlCheck;
 import hexlet.code.repository.BaseRepository;
+import hexlet.code.repository.RepositoryCache;
 import hexlet.code.repository.UrlCheckRepository;
+import hexlet.code.repository.UrlCheckRetention;
+import hexlet.code.repository.UrlCheckWriter;
 import hexlet.code.repository.UrlRepository;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static hexlet.code.App.migrate;
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.assertj.core.api.AssertionsForClassTypes.assertThatThrownBy;
 
 public class RepositoryTest extends BaseTest {
 
@@ -85,4 +105,597 @@ public class RepositoryTest extends BaseTest {
         assertThat(foundUrl.get().getUrlChecks().get(0).getTitle()).isEqualTo("Title 2");
         assertThat(foundUrl.get().getUrlChecks().get(1).getTitle()).isEqualTo("Title 1");
     }
+
+    @Test
+    void testUrlRepositoryGetEntitiesReturnsLatestCheck() throws SQLException {
+        var checked = new Url("https://checked.com");
+        UrlRepository.save(checked);
+        var unchecked = new Url("https://unchecked.com");
+        UrlRepository.save(unchecked);
+
+        UrlCheckRepository.save(new UrlCheck(500, "Old", "Old", "Old", checked.getId()));
+        UrlCheckRepository.save(new UrlCheck(200, "New", "New", "New", checked.getId()));
+
+        var urls = UrlRepository.getEntities();
+        assertThat(urls.size()).isEqualTo(2);
+
+        var first = urls.get(0);
+        assertThat(first.getName()).isEqualTo("https://checked.com");
+        assertThat(first.getLastStatusCode()).isEqualTo(200);
+        assertThat(first.getLastCheckedAt()).isNotNull();
+
+        assertThat(urls.get(1).getLastStatusCode()).isNull();
+        assertThat(urls.get(1).getLastCheckedAt()).isNull();
+
+        var withLatestCheck = UrlRepository.getPageWithLatestCheckAfter(0, 10).get(0);
+        assertThat(withLatestCheck.getUrlChecks().size()).isEqualTo(1);
+        assertThat(withLatestCheck.getUrlChecks().get(0).getTitle()).isEqualTo("New");
+    }
+
+    @Test
+    void testUrlRepositoryGetEntitiesQueryCountIsConstant() throws SQLException {
+        var statements = new AtomicInteger();
+        var primary = BaseRepository.dataSource;
+        try (var countingDataSource = createCountingDataSource(statements)) {
+            seedUrlsWithChecks(0, 3);
+            BaseRepository.dataSource = countingDataSource;
+            statements.set(0);
+            assertThat(UrlRepository.getEntities().size()).isEqualTo(3);
+            var fewUrlsStatements = statements.get();
+
+            BaseRepository.dataSource = primary;
+            seedUrlsWithChecks(3, 50);
+            BaseRepository.dataSource = countingDataSource;
+            statements.set(0);
+            assertThat(UrlRepository.getEntities().size()).isEqualTo(50);
+
+            assertThat(fewUrlsStatements).isEqualTo(1);
+            assertThat(statements.get()).isEqualTo(fewUrlsStatements);
+        } finally {
+            BaseRepository.dataSource = primary;
+        }
+    }
+
+    private static void seedUrlsWithChecks(int from, int to) throws SQLException {
+        for (int i = from; i < to; i++) {
+            var url = new Url("https://seed-" + i + ".com");
+            UrlRepository.save(url);
+            UrlCheckRepository.save(new UrlCheck(200, "Title " + i, "H1", "Description", url.getId()));
+            UrlCheckRepository.save(new UrlCheck(301, "Title " + i, "H1", "Description", url.getId()));
+        }
+    }
+
+    @Test
+    void testUrlRepositoryKeysetPages() throws SQLException {
+        seedUrlsWithChecks(0, 5);
+        var all = UrlRepository.getEntities();
+
+        var afterSecond = UrlRepository.getPageAfter(all.get(1).getId(), 2);
+        assertThat(afterSecond.size()).isEqualTo(2);
+        assertThat(afterSecond.get(0).getId()).isEqualTo(all.get(2).getId());
+        assertThat(afterSecond.get(1).getId()).isEqualTo(all.get(3).getId());
+        assertThat(afterSecond.get(0).getLastStatusCode()).isEqualTo(301);
+
+        var beforeFourth = UrlRepository.getPageBefore(all.get(3).getId(), 2);
+        assertThat(beforeFourth.size()).isEqualTo(2);
+        assertThat(beforeFourth.get(0).getId()).isEqualTo(all.get(1).getId());
+        assertThat(beforeFourth.get(1).getId()).isEqualTo(all.get(2).getId());
+
+        assertThat(UrlRepository.getPageAfter(all.get(4).getId(), 2).size()).isEqualTo(0);
+    }
+
+    @Test
+    void testUrlCheckRepositorySaveAllAssignsIds() throws SQLException {
+        var url = new Url("https://batch.com");
+        UrlRepository.save(url);
+        var checks = List.of(
+                new UrlCheck(200, "A", "A", "A", url.getId()),
+                new UrlCheck(404, "B", "B", "B", url.getId()),
+                new UrlCheck(500, "C", "C", "C", url.getId()));
+
+        UrlCheckRepository.saveAll(checks);
+
+        for (var check : checks) {
+            assertThat(check.getId()).isNotNull();
+            assertThat(check.getCreatedAt()).isNotNull();
+        }
+        assertThat(checks.stream().map(UrlCheck::getId).distinct().count()).isEqualTo(3L);
+        assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(3);
+    }
+
+    @Test
+    void testUrlCheckWriterFlushesOnBatchSize() throws SQLException {
+        var url = new Url("https://writer-size.com");
+        UrlRepository.save(url);
+
+        try (var writer = new UrlCheckWriter(2, Duration.ofHours(1))) {
+            var first = new UrlCheck(200, "1", "1", "1", url.getId());
+            writer.write(first);
+            assertThat(first.getId()).isNull();
+            assertThat(writer.getPendingCount()).isEqualTo(1);
+
+            var second = new UrlCheck(200, "2", "2", "2", url.getId());
+            writer.write(second);
+            assertThat(first.getId()).isNotNull();
+            assertThat(second.getId()).isNotNull();
+            assertThat(writer.getPendingCount()).isEqualTo(0);
+
+            writer.write(new UrlCheck(200, "3", "3", "3", url.getId()));
+        }
+        assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(3);
+    }
+
+    @Test
+    void testUrlCheckWriterFlushesOnInterval() throws SQLException, InterruptedException {
+        var url = new Url("https://writer-time.com");
+        UrlRepository.save(url);
+
+        try (var writer = new UrlCheckWriter(100, Duration.ofMillis(50))) {
+            var check = new UrlCheck(200, "T", "T", "T", url.getId());
+            writer.write(check);
+
+            var deadline = System.currentTimeMillis() + 5_000;
+            while (UrlCheckRepository.findByUrlId(url.getId()).isEmpty() && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertThat(writer.getPendingCount()).isEqualTo(0);
+            assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(1);
+            assertThat(check.getId()).isNotNull();
+        }
+    }
+
+    @Test
+    void testUrlCheckWriterClampsOversizedValues() throws SQLException {
+        var url = new Url("https://writer-long.com");
+        UrlRepository.save(url);
+
+        var longTitle = "T".repeat(300);
+        try (var writer = new UrlCheckWriter(3, Duration.ofHours(1))) {
+            writer.write(new UrlCheck(200, "1", "1", "1", url.getId()));
+            var oversized = new UrlCheck(200, longTitle, "H".repeat(1000), "D", url.getId());
+            oversized.setEtag("\"" + "e".repeat(600) + "\"");
+            writer.write(oversized);
+            writer.write(new UrlCheck(200, "3", "3", "3", url.getId()));
+            assertThat(writer.getPendingCount()).isEqualTo(0);
+        }
+
+        var checks = UrlCheckRepository.findByUrlId(url.getId());
+        assertThat(checks.size()).isEqualTo(3);
+        var stored = checks.stream().filter(check -> check.getTitle().startsWith("T")).findFirst().orElseThrow();
+        assertThat(stored.getTitle()).isEqualTo(longTitle.substring(0, UrlCheckRepository.TITLE_LENGTH));
+        assertThat(stored.getH1().length()).isEqualTo(UrlCheckRepository.H1_LENGTH);
+        assertThat(stored.getEtag()).isNull();
+    }
+
+    @Test
+    void testUrlCheckWriterKeepsGoodRowsOfFailedBatch() throws SQLException {
+        var url = new Url("https://writer-partial.com");
+        UrlRepository.save(url);
+
+        var writer = new UrlCheckWriter(3, Duration.ofHours(1));
+        writer.write(new UrlCheck(200, "1", "1", "1", url.getId()));
+        writer.write(new UrlCheck(200, "orphan", "orphan", "orphan", url.getId() + 1000));
+        assertThatThrownBy(() -> writer.write(new UrlCheck(200, "3", "3", "3", url.getId())))
+                .isInstanceOf(SQLException.class);
+        writer.close();
+
+        assertThat(UrlCheckRepository.findByUrlId(url.getId()).size()).isEqualTo(2);
+    }
+
+    @Test
+    void testUrlRepositoryFindIsServedFromCache() throws SQLException {
+        var url = new Url("https://cached.com");
+        UrlRepository.save(url);
+
+        var statements = new AtomicInteger();
+        var primary = BaseRepository.dataSource;
+        try (var countingDataSource = createCountingDataSource(statements)) {
+            BaseRepository.dataSource = countingDataSource;
+            assertThat(UrlRepository.find(url.getId())).isPresent();
+            assertThat(UrlRepository.findByName("https://cached.com")).isPresent();
+            var coldStatements = statements.get();
+
+            assertThat(UrlRepository.find(url.getId())).isPresent();
+            assertThat(UrlRepository.findByName("https://cached.com")).isPresent();
+
+            assertThat(coldStatements).isGreaterThan(0);
+            assertThat(statements.get()).isEqualTo(coldStatements);
+            assertThat(UrlRepository.getFindCache().getHits()).isEqualTo(3L);
+            assertThat(UrlRepository.getFindCache().getMisses()).isEqualTo(1L);
+            assertThat(UrlRepository.getFindByNameCache().getHits()).isEqualTo(1L);
+        } finally {
+            BaseRepository.dataSource = primary;
+        }
+    }
+
+    @Test
+    void testUrlRepositoryCacheIsInvalidatedOnWrites() throws SQLException {
+        assertThat(UrlRepository.findByName("https://invalidated.com")).isEmpty();
+        var url = new Url("https://invalidated.com");
+        UrlRepository.save(url);
+        assertThat(UrlRepository.findByName("https://invalidated.com")).isPresent();
+
+        assertThat(UrlRepository.find(url.getId()).orElseThrow().getUrlChecks().size()).isEqualTo(0);
+        UrlCheckRepository.save(new UrlCheck(200, "One", "One", "One", url.getId()));
+        assertThat(UrlRepository.find(url.getId()).orElseThrow().getUrlChecks().size()).isEqualTo(1);
+        UrlCheckRepository.saveAll(List.of(new UrlCheck(200, "Two", "Two", "Two", url.getId())));
+        assertThat(UrlRepository.find(url.getId()).orElseThrow().getUrlChecks().size()).isEqualTo(2);
+    }
+
+    @Test
+    void testRepositoryCacheEvictsLeastRecentlyUsedAndExpired() throws SQLException, InterruptedException {
+        var loads = new AtomicInteger();
+        var cache = new RepositoryCache<Integer, Integer>(2, Duration.ofMillis(200));
+        RepositoryCache.Loader<Integer, Integer> loader = key -> {
+            loads.incrementAndGet();
+            return key * 10;
+        };
+
+        cache.get(1, loader);
+        cache.get(2, loader);
+        cache.get(1, loader);
+        cache.get(3, loader);
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(loads.get()).isEqualTo(3);
+
+        assertThat(cache.get(1, loader)).isEqualTo(10);
+        assertThat(loads.get()).isEqualTo(3);
+        cache.get(2, loader);
+        assertThat(loads.get()).isEqualTo(4);
+
+        Thread.sleep(300);
+        cache.get(2, loader);
+        assertThat(loads.get()).isEqualTo(5);
+        assertThat(cache.getHitRate()).isEqualTo(2.0 / 7);
+    }
+
+    @Test
+    void testRepositoryCacheDropsOnlyLoadsOfInvalidatedKey() throws SQLException {
+        var cache = new RepositoryCache<Integer, Integer>(10, Duration.ofMinutes(1));
+
+        cache.get(1, key -> {
+            cache.invalidate(2);
+            return 10;
+        });
+        assertThat(cache.size()).isEqualTo(1);
+
+        cache.get(3, key -> {
+            cache.invalidate(3);
+            return 30;
+        });
+        assertThat(cache.size()).isEqualTo(1);
+        assertThat(cache.get(3, key -> 31)).isEqualTo(31);
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    void testUrlRepositoryFindReturnsCopies() throws SQLException {
+        var url = new Url("https://copied.com");
+        UrlRepository.save(url);
+        UrlCheckRepository.save(new UrlCheck(200, "Stored", "", "", url.getId()));
+
+        var first = UrlRepository.find(url.getId()).orElseThrow();
+        first.setName("https://changed.com");
+        first.getUrlChecks().get(0).setTitle("Changed");
+        first.getUrlChecks().clear();
+
+        var second = UrlRepository.find(url.getId()).orElseThrow();
+        assertThat(second.getName()).isEqualTo("https://copied.com");
+        assertThat(second.getUrlChecks().size()).isEqualTo(1);
+        assertThat(second.getUrlChecks().get(0).getTitle()).isEqualTo("Stored");
+        assertThat(UrlRepository.getFindCache().getHits()).isGreaterThan(0L);
+    }
+
+    @Test
+    void testUrlCheckRepositoryFindPageSeeksByCreatedAtAndId() throws SQLException {
+        var url = new Url("https://paged-checks.com");
+        UrlRepository.save(url);
+        var sameInstant = List.of(new UrlCheck(200, "A", "", "", url.getId()),
+                new UrlCheck(200, "B", "", "", url.getId()),
+                new UrlCheck(200, "C", "", "", url.getId()));
+        UrlCheckRepository.saveAll(sameInstant);
+        var latest = new UrlCheck(200, "D", "", "", url.getId());
+        UrlCheckRepository.save(latest);
+
+        var first = UrlCheckRepository.findPageByUrlId(url.getId(), null, 2);
+        assertThat(first.size()).isEqualTo(2);
+        assertThat(first.get(0).getTitle()).isEqualTo("D");
+        assertThat(first.get(1).getTitle()).isEqualTo("C");
+
+        var second = UrlCheckRepository.findPageByUrlId(url.getId(), first.get(1).getId(), 2);
+        assertThat(second.size()).isEqualTo(2);
+        assertThat(second.get(0).getTitle()).isEqualTo("B");
+        assertThat(second.get(1).getTitle()).isEqualTo("A");
+
+        assertThat(UrlCheckRepository.findPageByUrlId(url.getId(), second.get(1).getId(), 2).size()).isEqualTo(0);
+    }
+
+    @Test
+    void testUrlChecksReadsUseCompositeIndex() throws SQLException {
+        seedUrlsWithChecks(0, 20);
+        var queries = List.of(
+                "SELECT * FROM url_checks WHERE url_id = 1 ORDER BY created_at DESC",
+                "SELECT * FROM url_checks WHERE url_id = 1 ORDER BY created_at DESC, id DESC LIMIT 50");
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.createStatement()) {
+            for (var query : queries) {
+                var resultSet = stmt.executeQuery("EXPLAIN " + query);
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getString(1)).contains("URL_CHECKS_URL_ID_CREATED_AT_IDX");
+            }
+        }
+    }
+
+    @Test
+    void testMigrateUpgradesDatabaseCreatedBySchemaSql() throws SQLException {
+        var legacyConfig = new HikariConfig();
+        legacyConfig.setJdbcUrl("jdbc:h2:mem:legacy;DB_CLOSE_DELAY=-1");
+        try (var legacy = new HikariDataSource(legacyConfig)) {
+            try (var conn = legacy.getConnection();
+                 var stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+                stmt.execute("RUNSCRIPT FROM 'classpath:db/migration/V1__create_urls_and_url_checks.sql'");
+                stmt.execute("INSERT INTO urls (name, created_at) VALUES ('https://legacy.com', CURRENT_TIMESTAMP)");
+                stmt.execute("INSERT INTO url_checks (url_id, status_code, created_at) "
+                        + "VALUES (1, 200, CURRENT_TIMESTAMP)");
+            }
+
+            migrate(legacy);
+
+            try (var conn = legacy.getConnection();
+                 var stmt = conn.createStatement()) {
+                var resultSet = stmt.executeQuery("SELECT bytes_read, truncated, etag, last_modified, not_modified "
+                        + "FROM url_checks WHERE url_id = 1");
+                assertThat(resultSet.next()).isTrue();
+                assertThat(resultSet.getLong("bytes_read")).isEqualTo(0L);
+                assertThat(resultSet.getBoolean("not_modified")).isFalse();
+            }
+        }
+    }
+
+    private static void insertCheckAt(Long urlId, int statusCode, String title, LocalDateTime createdAt)
+            throws SQLException {
+        var sql = "INSERT INTO url_checks (url_id, status_code, title, created_at) VALUES (?, ?, ?, ?)";
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setInt(2, statusCode);
+            stmt.setString(3, title);
+            stmt.setTimestamp(4, Timestamp.valueOf(createdAt));
+            stmt.executeUpdate();
+        }
+    }
+
+    @Test
+    void testUrlCheckRetentionCompactsOldChecksIntoDailySummaries() throws SQLException {
+        var url = new Url("https://retention.com");
+        UrlRepository.save(url);
+        var oldDay = LocalDate.now().minusDays(10);
+        insertCheckAt(url.getId(), 200, "Morning", oldDay.atTime(8, 0));
+        insertCheckAt(url.getId(), 500, "Noon", oldDay.atTime(12, 0));
+        insertCheckAt(url.getId(), 200, "Evening", oldDay.atTime(20, 0));
+        insertCheckAt(url.getId(), 404, "Earlier", oldDay.minusDays(1).atTime(9, 0));
+        UrlCheckRepository.save(new UrlCheck(200, "Fresh", "", "", url.getId()));
+
+        try (var retention = new UrlCheckRetention(7)) {
+            assertThat(retention.run()).isEqualTo(2);
+        }
+
+        var checks = UrlCheckRepository.findByUrlId(url.getId());
+        assertThat(checks.size()).isEqualTo(1);
+        assertThat(checks.get(0).getTitle()).isEqualTo("Fresh");
+
+        var sql = "SELECT * FROM url_check_daily_summaries WHERE url_id = ? ORDER BY check_date DESC";
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, url.getId());
+            var resultSet = stmt.executeQuery();
+
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getDate("check_date").toLocalDate()).isEqualTo(oldDay);
+            assertThat(resultSet.getInt("check_count")).isEqualTo(3);
+            assertThat(resultSet.getInt("status_2xx")).isEqualTo(2);
+            assertThat(resultSet.getInt("status_5xx")).isEqualTo(1);
+            assertThat(resultSet.getInt("last_status_code")).isEqualTo(200);
+            assertThat(resultSet.getString("last_title")).isEqualTo("Evening");
+
+            assertThat(resultSet.next()).isTrue();
+            assertThat(resultSet.getInt("check_count")).isEqualTo(1);
+            assertThat(resultSet.getInt("status_4xx")).isEqualTo(1);
+            assertThat(resultSet.next()).isFalse();
+        }
+    }
+
+    private static String createMonthPartition(YearMonth month) throws SQLException {
+        var name = "url_checks_p" + month.format(DateTimeFormatter.ofPattern("yyyyMM"));
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.createStatement()) {
+            stmt.execute("CREATE TABLE " + name + " (id BIGINT AUTO_INCREMENT, url_id BIGINT, status_code INTEGER, "
+                    + "title VARCHAR(255), created_at TIMESTAMP)");
+        }
+        return name;
+    }
+
+    private static void insertPartitionCheck(String partition, Long urlId, int statusCode, LocalDateTime createdAt)
+            throws SQLException {
+        var sql = "INSERT INTO " + partition + " (url_id, status_code, title, created_at) VALUES (?, ?, ?, ?)";
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setLong(1, urlId);
+            stmt.setInt(2, statusCode);
+            stmt.setString(3, "Partitioned");
+            stmt.setTimestamp(4, Timestamp.valueOf(createdAt));
+            stmt.executeUpdate();
+        }
+    }
+
+    private static long countRows(String table) throws SQLException {
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.createStatement();
+             var resultSet = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+
+    private static boolean tableExists(String table) throws SQLException {
+        var sql = "SELECT 1 FROM information_schema.tables WHERE LOWER(table_name) = ?";
+        try (var conn = BaseRepository.dataSource.getConnection();
+             var stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, table);
+            return stmt.executeQuery().next();
+        }
+    }
+
+    @Test
+    void testUrlCheckRetentionLeavesPartitionNamedTablesAloneOffPostgres() throws SQLException {
+        var url = new Url("https://retention-partitions.com");
+        UrlRepository.save(url);
+        var expiredMonth = YearMonth.now().minusMonths(2);
+        var lookalike = createMonthPartition(expiredMonth);
+        insertPartitionCheck(lookalike, url.getId(), 200, expiredMonth.atDay(10).atTime(9, 0));
+        insertCheckAt(url.getId(), 200, "Old", expiredMonth.atDay(10).atTime(9, 0));
+
+        try (var retention = new UrlCheckRetention(7)) {
+            retention.maintainPartitions(YearMonth.now());
+            assertThat(retention.run()).isEqualTo(1);
+        }
+
+        assertThat(tableExists(lookalike)).isTrue();
+        assertThat(countRows(lookalike)).isEqualTo(1L);
+        assertThat(tableExists("url_checks_p" + YearMonth.now().format(DateTimeFormatter.ofPattern("yyyyMM"))))
+                .isFalse();
+        assertThat(countRows("url_checks")).isEqualTo(0L);
+    }
+
+    @Test
+    void testUrlCheckRetentionDisabledKeepsChecks() throws SQLException {
+        var url = new Url("https://retention-disabled.com");
+        UrlRepository.save(url);
+        insertCheckAt(url.getId(), 200, "Old", LocalDateTime.now().minusYears(1));
+
+        try (var retention = new UrlCheckRetention(0)) {
+            assertThat(retention.run()).isEqualTo(0);
+        }
+
+        assertThat(countRows("url_checks")).isEqualTo(1L);
+        assertThat(countRows("url_check_daily_summaries")).isEqualTo(0L);
+    }
+
+    @Test
+    void testExportReleasesConnectionBetweenPages() throws Exception {
+        var url = new Url("https://export-pages.com");
+        UrlRepository.save(url);
+        var checks = new ArrayList<UrlCheck>();
+        for (int i = 0; i < UrlCheckRepository.EXPORT_PAGE_SIZE + 10; i++) {
+            checks.add(new UrlCheck(200, "Export " + i, "", "", url.getId()));
+        }
+        UrlCheckRepository.saveAll(checks);
+
+        var singleConfig = new HikariConfig();
+        singleConfig.setJdbcUrl(TEST_DB_URL);
+        singleConfig.setMaximumPoolSize(1);
+        singleConfig.setConnectionTimeout(1_000);
+        var primary = BaseRepository.dataSource;
+        try (var single = new HikariDataSource(singleConfig)) {
+            BaseRepository.dataSource = single;
+            var exported = UrlCheckRepository.exportAll(check -> {
+                if (check.getTitle().equals("Export 0")) {
+                    try (var conn = single.getConnection()) {
+                        assertThat(conn.isValid(1)).isTrue();
+                    } catch (SQLException e) {
+                        throw new IOException(e);
+                    }
+                }
+            });
+            assertThat(exported).isEqualTo((long) checks.size());
+        } finally {
+            BaseRepository.dataSource = primary;
+        }
+    }
+
+    @Test
+    void testUrlCheckRepositoryKeepsNewestCheckOnUrl() throws SQLException {
+        var url = new Url("https://latest-columns.com");
+        UrlRepository.save(url);
+        UrlCheckRepository.save(new UrlCheck(500, "First", "", "", url.getId()));
+        UrlCheckRepository.saveAll(List.of(new UrlCheck(404, "Second", "", "", url.getId()),
+                new UrlCheck(200, "Third", "", "", url.getId())));
+
+        var stored = UrlRepository.findByName("https://latest-columns.com").orElseThrow();
+        var newest = UrlCheckRepository.findByUrlId(url.getId()).get(0);
+        assertThat(stored.getLastStatusCode()).isEqualTo(200);
+        assertThat(stored.getLastCheckedAt()).isEqualTo(newest.getCreatedAt());
+    }
+
+    @Test
+    void testReadsGoToReplicaOutsideReadYourWritesWindow() throws SQLException {
+        var replicaConfig = new HikariConfig();
+        replicaConfig.setJdbcUrl("jdbc:h2:mem:replica;DB_CLOSE_DELAY=-1");
+        try (var replica = new HikariDataSource(replicaConfig)) {
+            try (var conn = replica.getConnection();
+                 var stmt = conn.createStatement()) {
+                stmt.execute("DROP ALL OBJECTS");
+            }
+            migrate(replica);
+            try (var conn = replica.getConnection();
+                 var stmt = conn.prepareStatement("INSERT INTO urls (name, created_at) VALUES (?, ?)")) {
+                stmt.setString(1, "https://replica-only.com");
+                stmt.setTimestamp(2, Timestamp.valueOf(LocalDateTime.now()));
+                stmt.executeUpdate();
+            }
+            UrlRepository.configureCache(0, Duration.ofHours(1));
+
+            try {
+                BaseRepository.configureReplica(replica, Duration.ofMinutes(1));
+                assertThat(UrlRepository.findByName("https://replica-only.com")).isPresent();
+
+                var url = new Url("https://primary-write.com");
+                UrlRepository.save(url);
+                var names = UrlRepository.getEntities().stream().map(Url::getName).toList();
+                assertThat(names.contains("https://primary-write.com")).isTrue();
+                assertThat(names.contains("https://replica-only.com")).isFalse();
+                assertThat(UrlRepository.find(url.getId())).isPresent();
+
+                BaseRepository.configureReplica(replica, Duration.ZERO);
+                assertThat(UrlRepository.findByName("https://primary-write.com")).isEmpty();
+                assertThat(UrlRepository.findByName("https://replica-only.com")).isPresent();
+            } finally {
+                BaseRepository.configureReplica(null, BaseRepository.DEFAULT_READ_YOUR_WRITES_WINDOW);
+            }
+        }
+    }
+
+    @Test
+    void testSaveIfAbsentInsertsOnceUnderConcurrency() throws Exception {
+        var threads = 32;
+        var start = new CountDownLatch(1);
+        var executor = Executors.newFixedThreadPool(threads);
+        try {
+            var results = new ArrayList<Future<Boolean>>();
+            for (int i = 0; i < threads; i++) {
+                Callable<Boolean> save = () -> {
+                    start.await();
+                    return UrlRepository.saveIfAbsent(new Url("https://hammered.com"));
+                };
+                results.add(executor.submit(save));
+            }
+            start.countDown();
+
+            var inserted = 0;
+            for (var result : results) {
+                if (result.get()) {
+                    inserted++;
+                }
+            }
+            assertThat(inserted).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(UrlRepository.getEntities().size()).isEqualTo(1);
+        var stored = UrlRepository.findByName("https://hammered.com");
+        assertThat(stored).isPresent();
+        assertThat(UrlRepository.saveIfAbsent(new Url("https://hammered.com"))).isFalse();
+    }
 }
@@ -1,14 +1,18 @@
 package hexlet.code;
 
+import hexlet.code.check.UrlChecker;
 import hexlet.code.repository.UrlCheckRepository;
 import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
 import io.javalin.http.HttpStatus;
 import io.javalin.testtools.JavalinTest;
 import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
 import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -46,6 +50,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -82,6 +87,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -109,6 +115,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -165,7 +172,9 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
             assertThat(checks.size()).isEqualTo(2);
@@ -209,6 +218,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -263,6 +273,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -322,8 +333,11 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
             assertThat(checks.size()).isEqualTo(3);
@@ -364,6 +378,7 @@ public class UrlCheckControllerTest extends BaseTest {
             Long urlId = savedUrl.getId();
 
             var checkResponse = client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
             assertThat(checkResponse.code()).isEqualTo(HttpStatus.OK.getCode());
 
             var checks = UrlCheckRepository.findByUrlId(urlId);
@@ -375,4 +390,117 @@ public class UrlCheckControllerTest extends BaseTest {
             assertThat(check.getDescription()).isEqualTo("Описание с émojis 🚀 и <тегами>");
         });
     }
+
+    @Test
+    void testUrlCheckTruncatesLargeBody() throws SQLException {
+        var largeBody = "<html><body>" + "<p>filler</p>".repeat(10_000) + "<h1>Too far</h1></body></html>";
+        mockWebServer.enqueue(new MockResponse()
+                .setBody(largeBody)
+                .setResponseCode(HttpStatus.OK.getCode()));
+
+        String mockUrl = mockWebServer.url("/").toString();
+        var defaultLimit = UrlChecker.maxBodyBytes;
+        UrlChecker.maxBodyBytes = 16 * 1024;
+
+        try {
+            JavalinTest.test(appTest, (server, client) -> {
+                client.post(NamedRoutes.urlsPath(), "url=" + mockUrl);
+
+                var savedUrl = UrlRepository.findByName(mockUrl.replaceFirst("/$", ""))
+                        .orElseThrow(() -> new RuntimeException("URL not found after save"));
+                Long urlId = savedUrl.getId();
+
+                client.post(NamedRoutes.urlChecksPath(urlId));
+                awaitCheckJobs();
+
+                var checks = UrlCheckRepository.findByUrlId(urlId);
+                assertThat(checks.size()).isEqualTo(1);
+
+                var check = checks.get(0);
+                assertThat(check.getStatusCode()).isEqualTo(HttpStatus.OK.getCode());
+                assertThat(check.getH1()).isEmpty();
+                assertThat(check.isTruncated()).isTrue();
+                assertThat(check.getBytesRead()).isEqualTo(16 * 1024L);
+
+                var showBody = client.get(NamedRoutes.urlPath(urlId)).body().string();
+                assertThat(showBody).contains("обрезано");
+            });
+        } finally {
+            UrlChecker.maxBodyBytes = defaultLimit;
+        }
+    }
+
+    @Test
+    void testUrlCheckRecordsBytesRead() throws SQLException {
+        var body = "<html><head><title>Small</title></head><body><p>Tiny page</p></body></html>";
+        mockWebServer.enqueue(new MockResponse()
+                .setBody(body)
+                .setResponseCode(HttpStatus.OK.getCode()));
+
+        String mockUrl = mockWebServer.url("/").toString();
+
+        JavalinTest.test(appTest, (server, client) -> {
+            client.post(NamedRoutes.urlsPath(), "url=" + mockUrl);
+
+            var savedUrl = UrlRepository.findByName(mockUrl.replaceFirst("/$", ""))
+                    .orElseThrow(() -> new RuntimeException("URL not found after save"));
+            Long urlId = savedUrl.getId();
+
+            client.post(NamedRoutes.urlChecksPath(urlId));
+            awaitCheckJobs();
+
+            var check = UrlCheckRepository.findByUrlId(urlId).get(0);
+            assertThat(check.getBytesRead()).isEqualTo((long) body.length());
+            assertThat(check.isTruncated()).isFalse();
+        });
+    }
+
+    @Test
+    void testUrlCheckRevalidatesWithConditionalRequest() throws IOException {
+        var lastModified = "Wed, 21 Oct 2015 07:28:00 GMT";
+        try (var server = new MockWebServer()) {
+            server.enqueue(new MockResponse()
+                    .setBody("<html><head><title>Cached Page</title></head><body><h1>Cached</h1></body></html>")
+                    .setHeader("ETag", "\"v1\"")
+                    .setHeader("Last-Modified", lastModified)
+                    .setResponseCode(HttpStatus.OK.getCode()));
+            server.enqueue(new MockResponse().setResponseCode(HttpStatus.NOT_MODIFIED.getCode()));
+            server.start();
+
+            String mockUrl = server.url("/").toString();
+
+            JavalinTest.test(appTest, (app, client) -> {
+                client.post(NamedRoutes.urlsPath(), "url=" + mockUrl);
+
+                var savedUrl = UrlRepository.findByName(mockUrl.replaceFirst("/$", ""))
+                        .orElseThrow(() -> new RuntimeException("URL not found after save"));
+                Long urlId = savedUrl.getId();
+
+                client.post(NamedRoutes.urlChecksPath(urlId));
+                awaitCheckJobs();
+                client.post(NamedRoutes.urlChecksPath(urlId));
+                awaitCheckJobs();
+
+                var firstRequest = server.takeRequest(1, TimeUnit.SECONDS);
+                assertThat(firstRequest.getHeader("If-None-Match")).isNull();
+                var secondRequest = server.takeRequest(1, TimeUnit.SECONDS);
+                assertThat(secondRequest.getHeader("If-None-Match")).isEqualTo("\"v1\"");
+                assertThat(secondRequest.getHeader("If-Modified-Since")).isEqualTo(lastModified);
+
+                var checks = UrlCheckRepository.findByUrlId(urlId);
+                assertThat(checks.size()).isEqualTo(2);
+
+                var revalidated = checks.get(0);
+                assertThat(revalidated.isNotModified()).isTrue();
+                assertThat(revalidated.getStatusCode()).isEqualTo(HttpStatus.OK.getCode());
+                assertThat(revalidated.getTitle()).isEqualTo("Cached Page");
+                assertThat(revalidated.getH1()).isEqualTo("Cached");
+                assertThat(revalidated.getBytesRead()).isZero();
+                assertThat(revalidated.getEtag()).isEqualTo("\"v1\"");
+
+                var showBody = client.get(NamedRoutes.urlPath(urlId)).body().string();
+                assertThat(showBody).contains("не изменилась");
+            });
+        }
+    }
 }
@@ -1,6 +1,8 @@
 package hexlet.code;
 
 import hexlet.code.model.Url;
+import hexlet.code.model.UrlCheck;
+import hexlet.code.repository.UrlCheckRepository;
 import hexlet.code.repository.UrlRepository;
 import hexlet.code.util.NamedRoutes;
 import io.javalin.http.HttpStatus;
@@ -8,6 +10,10 @@ import io.javalin.testtools.JavalinTest;
 import org.junit.jupiter.api.Test;
 
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
@@ -189,4 +195,114 @@ public class UrlsControllerTest extends BaseTest {
             assertThat(urlsResponse.body().string()).contains("https://example.com:8080");
         });
     }
+
+    @Test
+    void testUrlsPageKeysetPagination() throws SQLException {
+        var ids = new ArrayList<Long>();
+        for (var name : new String[]{"https://a-page.com", "https://b-page.com", "https://c-page.com",
+            "https://d-page.com", "https://e-page.com"}) {
+            var url = new Url(name);
+            UrlRepository.save(url);
+            ids.add(url.getId());
+        }
+
+        JavalinTest.test(appTest, (server, client) -> {
+            var firstPage = client.get(NamedRoutes.urlsPath() + "?size=2").body().string();
+            assertThat(firstPage)
+                    .contains("https://a-page.com")
+                    .contains("https://b-page.com")
+                    .doesNotContain("https://c-page.com")
+                    .contains("after=" + ids.get(1))
+                    .doesNotContain("before=");
+
+            var secondPage = client.get(NamedRoutes.urlsPath() + "?after=" + ids.get(1) + "&size=2").body().string();
+            assertThat(secondPage)
+                    .doesNotContain("https://b-page.com")
+                    .contains("https://c-page.com")
+                    .contains("https://d-page.com")
+                    .doesNotContain("https://e-page.com")
+                    .contains("before=" + ids.get(2))
+                    .contains("after=" + ids.get(3));
+
+            var lastPage = client.get(NamedRoutes.urlsPath() + "?after=" + ids.get(3) + "&size=2").body().string();
+            assertThat(lastPage)
+                    .contains("https://e-page.com")
+                    .doesNotContain("after=");
+
+            var backPage = client.get(NamedRoutes.urlsPath() + "?before=" + ids.get(2) + "&size=2").body().string();
+            assertThat(backPage)
+                    .contains("https://a-page.com")
+                    .contains("https://b-page.com")
+                    .doesNotContain("https://c-page.com")
+                    .doesNotContain("before=");
+        });
+    }
+
+    @Test
+    void testShowUrlPaginatesCheckHistory() throws SQLException {
+        var url = new Url("https://long-history.com");
+        UrlRepository.save(url);
+        var checks = new ArrayList<UrlCheck>();
+        for (int i = 0; i < 120; i++) {
+            checks.add(new UrlCheck(200, String.format("check-%03d", i), "", "", url.getId()));
+        }
+        UrlCheckRepository.saveAll(checks);
+        var olderCursor = checks.get(70).getId();
+        var oldestCursor = checks.get(20).getId();
+
+        JavalinTest.test(appTest, (server, client) -> {
+            var newest = client.get(NamedRoutes.urlPath(url.getId())).body().string();
+            assertThat(newest)
+                    .contains("check-119")
+                    .contains("check-070")
+                    .doesNotContain("check-069")
+                    .contains("before=" + olderCursor)
+                    .doesNotContain("К последним проверкам");
+
+            var older = client.get(NamedRoutes.urlPath(url.getId()) + "?before=" + olderCursor).body().string();
+            assertThat(older)
+                    .doesNotContain("check-070")
+                    .contains("check-069")
+                    .contains("check-020")
+                    .doesNotContain("check-019")
+                    .contains("before=" + oldestCursor)
+                    .contains("К последним проверкам");
+
+            var oldest = client.get(NamedRoutes.urlPath(url.getId()) + "?before=" + oldestCursor).body().string();
+            assertThat(oldest)
+                    .contains("check-019")
+                    .contains("check-000")
+                    .doesNotContain("Более ранние проверки");
+        });
+    }
+
+    @Test
+    void testConcurrentDuplicateSubmissionsAllSucceed() {
+        JavalinTest.test(appTest, (server, client) -> {
+            var threads = 16;
+            var start = new CountDownLatch(1);
+            var executor = Executors.newFixedThreadPool(threads);
+            try {
+                var responses = new ArrayList<Future<Integer>>();
+                for (int i = 0; i < threads; i++) {
+                    responses.add(executor.submit(() -> {
+                        start.await();
+                        try (var response = client.post(NamedRoutes.urlsPath(), "url=https://same-url.com")) {
+                            return response.code();
+                        }
+                    }));
+                }
+                start.countDown();
+                for (var response : responses) {
+                    assertThat(response.get()).isEqualTo(HttpStatus.OK.getCode());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+
+            var names = UrlRepository.getEntities().stream().map(Url::getName).toList();
+            assertThat(names.size()).isEqualTo(1);
+            assertThat(names.get(0)).isEqualTo("https://same-url.com");
+        });
+    }
 }